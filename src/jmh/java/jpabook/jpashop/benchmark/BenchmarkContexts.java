@@ -0,0 +1,51 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.JpashopApplication;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 벤치마크용 스프링 컨텍스트를 띄운다.
+ * bulk 프로파일(내장 메모리 H2 + BulkDataGenerator)로 데이터를 생성하고, SQL 로그는 끈다.
+ */
+public final class BenchmarkContexts {
+
+    private BenchmarkContexts() {
+    }
+
+    public static ConfigurableApplicationContext start(String dbName, int orders, String... extraProperties) {
+        return start(WebApplicationType.NONE, dbName, orders, extraProperties);
+    }
+
+    public static ConfigurableApplicationContext start(WebApplicationType webType, String dbName, int orders, String... extraProperties) {
+        List<String> properties = new ArrayList<>(Arrays.asList(
+                "spring.datasource.url=jdbc:h2:mem:" + dbName + ";DB_CLOSE_DELAY=-1",
+                "spring.jpa.properties.hibernate.generate_statistics=true",
+                "jpashop.datagen.orders=" + orders,
+                "jpashop.datagen.members=" + Math.max(100, orders / 10),
+                "jpashop.datagen.items=" + Math.max(100, Math.min(10_000, orders / 10)),
+                "jpashop.datagen.categories=100",
+                "logging.level.root=warn",
+                "logging.level.org.hibernate.SQL=warn",
+                "logging.level.org.hibernate.type=warn"));
+        properties.addAll(Arrays.asList(extraProperties));
+
+        return new SpringApplicationBuilder(JpashopApplication.class)
+                .web(webType)
+                .profiles("bulk")
+                .properties(properties.toArray(new String[0]))
+                .run();
+    }
+
+    public static Statistics statistics(ConfigurableApplicationContext context) {
+        return context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+}
@@ -0,0 +1,100 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CategoryRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 카테고리 서브트리의 상품 한 페이지(20건) 조회 지연시간 비교 (10k 노드 트리, BulkDataGenerator 가 무작위로 구성)
+ * - levelByLevel : parent_id 로 한 레벨씩 자식 카테고리를 찾은 후 모은 id 로 상품 조회 (트리 깊이 + 1 번의 쿼리)
+ * - closure : closure table 로 한 번에 조회 (CategoryRepository.findItemsInSubtree)
+ * subtree=largest 는 자손이 가장 많은 카테고리, deepest 는 가장 깊은 경로를 가진 카테고리에서 시작한다.
+ *
+ * ./gradlew jmh -PjmhIncludes=CategorySubtreeBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CategorySubtreeBenchmark {
+
+    private static final PageRequest PAGE = PageRequest.of(0, 20);
+
+    @Param({"10000"})
+    public int categories;
+
+    @Param({"largest", "deepest"})
+    public String subtree;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnlyTx;
+    private CategoryRepository categoryRepository;
+    private EntityManager em;
+    private Long categoryId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start("category" + categories, 1_000,
+                "jpashop.datagen.categories=" + categories,
+                "jpashop.datagen.items=" + categories * 5);
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        categoryRepository = context.getBean(CategoryRepository.class);
+        em = context.getBean(EntityManager.class);
+
+        String orderBy = subtree.equals("largest") ? "count(cc)" : "max(cc.depth)";
+        categoryId = readOnlyTx.execute(status -> em.createQuery(
+                        "select cc.ancestor.id from CategoryClosure cc" +
+                        " group by cc.ancestor.id" +
+                        " order by " + orderBy + " desc", Long.class)
+                .setMaxResults(1)
+                .getSingleResult());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void levelByLevel(Blackhole bh) {
+        readOnlyTx.executeWithoutResult(status -> bh.consume(findItemsLevelByLevel(categoryId)));
+    }
+
+    @Benchmark
+    public void closure(Blackhole bh) {
+        readOnlyTx.executeWithoutResult(status -> bh.consume(categoryRepository.findItemsInSubtree(categoryId, PAGE)));
+    }
+
+    // 기준선 : closure table 이 없을 때 parent/child 인접 리스트만으로 서브트리를 찾는 방법
+    private Page<Item> findItemsLevelByLevel(Long rootId) {
+        List<Long> ids = new ArrayList<>(List.of(rootId));
+        List<Long> level = List.of(rootId);
+        while (!level.isEmpty()) {
+            level = em.createQuery("select c.id from Category c where c.parent.id in :ids", Long.class)
+                    .setParameter("ids", level)
+                    .getResultList();
+            ids.addAll(level);
+        }
+
+        String items = " from Item i where i.id in (select ci.id from Category c join c.items ci where c.id in :ids)";
+        List<Item> content = em.createQuery("select i" + items + " order by i.id", Item.class)
+                .setParameter("ids", ids)
+                .setFirstResult((int) PAGE.getOffset())
+                .setMaxResults(PAGE.getPageSize())
+                .getResultList();
+        return PageableExecutionUtils.getPage(content, PAGE,
+                () -> em.createQuery("select count(i)" + items, Long.class).setParameter("ids", ids).getSingleResult());
+    }
+}
@@ -0,0 +1,76 @@
+package jpabook.jpashop.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동시 클라이언트 2000 명이 GET /api/v3.1/orders 를 호출할 때의 응답 시간 분포 (SampleTime 결과의 p0.99 를 비교)
+ * - platform : Tomcat 워커 풀(threads.max=200). 나머지 요청은 연결된 채로 워커를 기다린다
+ * - virtual  : 요청마다 가상 스레드. DB 동시성은 커넥션 풀 크기의 세마포어로 제한된다
+ *
+ * virtual 은 JDK 21 이 필요하다 : ./gradlew -PvirtualThreads jmh -PjmhIncludes=OrderApiLatencyBenchmark
+ * 클라이언트 스레드 2000 개를 띄우므로 ulimit -u / -n 을 충분히 크게 한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(2000)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+public class OrderApiLatencyBenchmark {
+
+    private static final int ORDERS = 10_000;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start(WebApplicationType.SERVLET, "latency" + threads, ORDERS,
+                "server.port=0",
+                "server.tomcat.threads.max=200",
+                "server.tomcat.max-connections=8192",
+                "server.tomcat.accept-count=2000",
+                "jpashop.datasource.pool.connection-timeout=30s",
+                "jpashop.virtual-threads.enabled=" + "virtual".equals(threads),
+                "jpashop.virtual-threads.db-permit-timeout=30s");
+
+        int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+        baseUri = "http://localhost:" + port + "/api/v3.1/orders?limit=" + PAGE_SIZE + "&offset=";
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int ordersV3_paging() throws IOException, InterruptedException {
+        int offset = ThreadLocalRandom.current().nextInt(ORDERS / PAGE_SIZE) * PAGE_SIZE;
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + offset)).GET().build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET /api/v3.1/orders failed: " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
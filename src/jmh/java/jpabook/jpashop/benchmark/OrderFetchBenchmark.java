@@ -0,0 +1,119 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.order.query.OrderFlatFolder;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderApiController v1~v6 가 사용하는 조회 전략별 처리량, 할당률(-prof gc), SQL 실행 수 비교
+ * 각 벤치마크는 API 와 같은 필드(회원 이름, 배송 주소, 주문상품/상품 이름)를 읽어 지연 로딩까지 포함한다.
+ *
+ * ./gradlew jmh -PjmhIncludes=OrderFetchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OrderFetchBenchmark {
+
+    @Param({"1000", "10000"})
+    public int orders;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnlyTx;
+    private OrderRepository orderRepository;
+    private OrderQueryRepository orderQueryRepository;
+    private EntityManager em;
+    private Statistics statistics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start("fetch" + orders, orders);
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        orderRepository = context.getBean(OrderRepository.class);
+        orderQueryRepository = context.getBean(OrderQueryRepository.class);
+        em = context.getBean(EntityManager.class);
+        statistics = BenchmarkContexts.statistics(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 호출 1회당 SQL 실행 수는 statements / calls 로 계산한다
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SqlCounters {
+        public long statements;
+        public long calls;
+    }
+
+    // v1/v2 : OrderRepository.findAll(OrderSearch) 와 같은 쿼리. 그 메서드는 1000건으로 제한되므로
+    // 다른 전략과 같은 주문 수를 읽도록 제한 없이 실행한다
+    @Benchmark
+    public void findAllBySearch(SqlCounters counters, Blackhole bh) {
+        measure(counters, () -> touchOrders(em.createQuery(
+                "select o from Order o join o.member m", Order.class).getResultList(), bh));
+    }
+
+    @Benchmark
+    public void findAllWithItem(SqlCounters counters, Blackhole bh) {
+        measure(counters, () -> touchOrders(orderRepository.findAllWithItem(), bh));
+    }
+
+    @Benchmark
+    public void findAllWithMemberDeliveryPaging(SqlCounters counters, Blackhole bh) {
+        measure(counters, () -> touchOrders(orderRepository.findAllWithMemberDelivery(0, 100), bh));
+    }
+
+    @Benchmark
+    public void findOrderQueryDtos(SqlCounters counters, Blackhole bh) {
+        measure(counters, () -> bh.consume(orderQueryRepository.findOrderQueryDtos()));
+    }
+
+    @Benchmark
+    public void findAllByDto_optimization(SqlCounters counters, Blackhole bh) {
+        measure(counters, () -> bh.consume(orderQueryRepository.findAllByDto_optimization()));
+    }
+
+    @Benchmark
+    public void findAllByDto_flat(SqlCounters counters, Blackhole bh) {
+        measure(counters, () -> {
+            List<OrderQueryDto> result = OrderFlatFolder.fold(orderQueryRepository.findAllByDto_flatOrdered());
+            bh.consume(result);
+        });
+    }
+
+    private void measure(SqlCounters counters, Runnable work) {
+        long before = statistics.getPrepareStatementCount();
+        readOnlyTx.executeWithoutResult(status -> work.run());
+        counters.statements += statistics.getPrepareStatementCount() - before;
+        counters.calls++;
+    }
+
+    private void touchOrders(List<Order> orders, Blackhole bh) {
+        for (Order order : orders) {
+            bh.consume(order.getMember().getName());
+            bh.consume(order.getDelivery().getAddress());
+            for (OrderItem orderItem : order.getOrderItems()) {
+                bh.consume(orderItem.getItem().getName());
+            }
+        }
+    }
+}
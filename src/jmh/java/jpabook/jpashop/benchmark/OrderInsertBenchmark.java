@@ -0,0 +1,111 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.StockKeeper;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 대량 주문 저장 처리량 비교 (주문 1건 = orders, delivery, order_item 2건 = insert 4번)
+ * - batchSize=1 : insert 를 1건씩 전송 (이전)
+ * - batchSize=100 : hibernate.jdbc.batch_size + order_inserts 로 같은 테이블의 insert 를 묶어서 전송 (이후)
+ * 한 번의 호출에서 ORDERS 건을 FLUSH_INTERVAL 마다 flush/clear 하며 저장하고 롤백한다 (DB 크기를 유지). 점수는 주문/초.
+ * 반복마다 실행된 SQL(prepared statement) 수를 출력한다.
+ *
+ * ./gradlew jmh -PjmhIncludes=OrderInsertBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OrderInsertBenchmark {
+
+    private static final int ORDERS = 1_000;
+    private static final int FLUSH_INTERVAL = 100;
+
+    // 재고 변경(update)은 측정 대상이 아니고, 반복하는 동안 재고가 바닥나지 않도록 재고는 건드리지 않는다
+    private static final StockKeeper NO_STOCK_CHANGE = new StockKeeper() {
+        @Override
+        public void removeStock(Item item, int quantity) {
+        }
+
+        @Override
+        public void addStock(Item item, int quantity) {
+        }
+    };
+
+    @Param({"1", "100"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate tx;
+    private EntityManager em;
+    private Long memberId;
+    private Long itemId1;
+    private Long itemId2;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start("insert" + batchSize, 1_000,
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                "spring.jpa.properties.hibernate.order_inserts=true");
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        em = context.getBean(EntityManager.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        memberId = jdbcTemplate.queryForObject("select min(member_id) from member", Long.class);
+        itemId1 = jdbcTemplate.queryForObject("select min(item_id) from item", Long.class);
+        itemId2 = jdbcTemplate.queryForObject("select max(item_id) from item", Long.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearStatistics() {
+        BenchmarkContexts.statistics(context).clear();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportStatements() {
+        Statistics statistics = BenchmarkContexts.statistics(context);
+        System.out.printf("%n[batchSize=%d] inserts=%d, statements=%d%n",
+                batchSize, statistics.getEntityInsertCount(), statistics.getPrepareStatementCount());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public void insertOrders() {
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < ORDERS; i++) {
+                Member member = em.find(Member.class, memberId);
+                Item item1 = em.find(Item.class, itemId1);
+                Item item2 = em.find(Item.class, itemId2);
+
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                em.persist(Order.createOrder(member, delivery,
+                        OrderItem.createOrderItem(item1, item1.getPrice(), 1, NO_STOCK_CHANGE),
+                        OrderItem.createOrderItem(item2, item2.getPrice(), 1, NO_STOCK_CHANGE)));
+
+                if ((i + 1) % FLUSH_INTERVAL == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            status.setRollbackOnly();
+        });
+    }
+}
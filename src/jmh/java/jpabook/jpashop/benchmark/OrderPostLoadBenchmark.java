@@ -0,0 +1,91 @@
+package jpabook.jpashop.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * POST /order (주문 화면의 폼 전송) 부하 테스트. 커넥션 풀 크기별 처리량과 커넥션 대기 시간 비교
+ * 동시 요청 수(@Threads)보다 풀이 작으면 요청이 hikaricp.connections.pending 에 쌓이고,
+ * 풀을 키워도 DB(H2) 락 경합 때문에 처리량은 어느 지점에서 더 늘지 않는다.
+ *
+ * ./gradlew jmh -PjmhIncludes=OrderPostLoadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+public class OrderPostLoadBenchmark {
+
+    @Param({"2", "5", "10", "20", "40"})
+    public int poolSize;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private URI orderUri;
+    private List<Long> memberIds;
+    private List<Long> itemIds;
+    private Timer acquireTimer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start(WebApplicationType.SERVLET, "load" + poolSize, 1_000,
+                "server.port=0",
+                "server.tomcat.threads.max=64",
+                "jpashop.datasource.pool.maximum-pool-size=" + poolSize,
+                "jpashop.datasource.pool.minimum-idle=" + poolSize,
+                "jpashop.datasource.pool.connection-timeout=30s");
+
+        int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+        orderUri = URI.create("http://localhost:" + port + "/order");
+        client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)     // 주문 목록 화면은 측정하지 않는다
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        memberIds = jdbcTemplate.queryForList("select member_id from member", Long.class);
+        itemIds = jdbcTemplate.queryForList("select item_id from item", Long.class);
+        acquireTimer = context.getBean(MeterRegistry.class).find("hikaricp.connections.acquire").timer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (acquireTimer != null) {
+            System.out.printf("%n[poolSize=%d] connection acquire: count=%d, mean=%.3f ms, max=%.3f ms%n",
+                    poolSize, acquireTimer.count(), acquireTimer.mean(TimeUnit.MILLISECONDS), acquireTimer.max(TimeUnit.MILLISECONDS));
+        }
+        context.close();
+    }
+
+    @Benchmark
+    public int postOrder() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String form = "memberId=" + memberIds.get(random.nextInt(memberIds.size()))
+                + "&itemId=" + itemIds.get(random.nextInt(itemIds.size()))
+                + "&count=1";
+
+        HttpRequest request = HttpRequest.newBuilder(orderUri)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status != 302) {
+            throw new IllegalStateException("POST /order failed: " + status);
+        }
+        return status;
+    }
+}
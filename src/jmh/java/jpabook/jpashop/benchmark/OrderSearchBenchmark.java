@@ -0,0 +1,107 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.MemberNameMatch;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문 검색 1회당 지연시간과 할당량(-prof gc 의 gc.alloc.rate.norm) 비교
+ * - criteria : 이전 OrderService.findOrders 가 사용하던 JPA Criteria 구현 (비교를 위해 그대로 옮겨둠)
+ * - querydsl : 조건 조합별로 미리 만들어 둔 Querydsl 쿼리 (OrderRepository.findAll)
+ * - querydslDto : 같은 검색을 DTO 프로젝션 + 페이징으로 (OrderRepository.search)
+ *
+ * ./gradlew jmh -PjmhIncludes=OrderSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderSearchBenchmark {
+
+    @Param({"10000"})
+    public int orders;
+
+    @Param({"none", "status", "name", "status+name"})
+    public String filter;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnlyTx;
+    private OrderRepository orderRepository;
+    private EntityManager em;
+    private OrderSearch orderSearch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start("search" + orders, orders);
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        orderRepository = context.getBean(OrderRepository.class);
+        em = context.getBean(EntityManager.class);
+
+        orderSearch = new OrderSearch();
+        if (filter.contains("status")) {
+            orderSearch.setOrderStatus(OrderStatus.CANCEL);
+        }
+        if (filter.contains("name")) {
+            orderSearch.setMemberName("member1");   // BulkDataGenerator 의 회원 이름은 member0, member1, ...
+            orderSearch.setNameMatch(MemberNameMatch.PREFIX);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void criteria(Blackhole bh) {
+        readOnlyTx.executeWithoutResult(status -> bh.consume(findAllByCriteria(orderSearch)));
+    }
+
+    @Benchmark
+    public void querydsl(Blackhole bh) {
+        readOnlyTx.executeWithoutResult(status -> bh.consume(orderRepository.findAll(orderSearch)));
+    }
+
+    @Benchmark
+    public void querydslDto(Blackhole bh) {
+        readOnlyTx.executeWithoutResult(status ->
+                bh.consume(orderRepository.search(orderSearch, PageRequest.of(0, 1000, Sort.by("orderId")))));
+    }
+
+    // 기준선 : 통합 전 OrderRepository.findAllByCriteria (호출마다 Criteria 트리를 새로 만든다)
+    private List<Order> findAllByCriteria(OrderSearch orderSearch) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Order> cq = cb.createQuery(Order.class);
+        Root<Order> o = cq.from(Order.class);
+        Join<Object, Object> m = o.join("member", JoinType.INNER);
+
+        List<Predicate> criteria = new ArrayList<>();
+        if (orderSearch.getOrderStatus() != null) {
+            criteria.add(cb.equal(o.get("status"), orderSearch.getOrderStatus()));
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            criteria.add(cb.like(m.<String>get("name"), orderSearch.memberNamePattern(), OrderSearch.LIKE_ESCAPE));
+        }
+
+        cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
+        TypedQuery<Order> orderTypedQuery = em.createQuery(cq).setMaxResults(1000);
+        return orderTypedQuery.getResultList();
+    }
+}
@@ -0,0 +1,103 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.stock.StockReservationEngine;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 한 상품을 64명이 동시에 1개씩 주문할 때 재고 변경 방식(jpashop.stock.mode)별 처리량과 초과 판매 비교
+ * 초과 판매 = 성공한 주문 수량 - 실제로 감소한 재고 (변경감지는 갱신 손실로 0 보다 클 수 있다)
+ * 반복(iteration)마다 새 상품을 만들고, 끝나면 초과 판매 수를 출력한다. 성공/재고 부족/오류 수는 보조 지표로 나온다.
+ *
+ * ./gradlew jmh -PjmhIncludes=StockConcurrencyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(64)
+public class StockConcurrencyBenchmark {
+
+    private static final int INITIAL_STOCK = 1_000_000;
+
+    @Param({"dirty-checking", "atomic", "reservation"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate tx;
+    private EntityManager em;
+    private Long memberId;
+
+    private volatile Long itemId;
+    private final AtomicLong sold = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.start("stock-" + mode, 1_000, "jpashop.stock.mode=" + mode);
+        orderService = context.getBean(OrderService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        em = context.getBean(EntityManager.class);
+        memberId = jdbcTemplate.queryForObject("select min(member_id) from member", Long.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void createHotItem() {
+        sold.set(0);
+        itemId = tx.execute(status -> {
+            Book book = new Book();
+            book.setName("HOT " + mode);
+            book.setPrice(10000);
+            book.setStockQuantity(INITIAL_STOCK);
+            em.persist(book);
+            return book.getId();
+        });
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportOversell() {
+        if (mode.equals("reservation")) {
+            context.getBean(StockReservationEngine.class).flush();
+        }
+        int finalStock = jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, itemId);
+        System.out.printf("%n[%s] sold=%d, finalStock=%d, oversell=%d%n",
+                mode, sold.get(), finalStock, sold.get() - (INITIAL_STOCK - finalStock));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long success;
+        public long rejected;
+        public long errors;     // 락 타임아웃, 동시 갱신 충돌 등
+    }
+
+    @Benchmark
+    public void orderHotItem(Outcomes outcomes) {
+        try {
+            orderService.order(memberId, itemId, 1);
+            sold.incrementAndGet();
+            outcomes.success++;
+        } catch (NotEnoughStockException e) {
+            outcomes.rejected++;
+        } catch (RuntimeException e) {
+            outcomes.errors++;
+        }
+    }
+}
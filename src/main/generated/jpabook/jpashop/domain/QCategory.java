@@ -22,6 +22,8 @@ public class QCategory extends EntityPathBase<Category> {
 
     public static final QCategory category = new QCategory("category");
 
+    public final ListPath<CategoryClosure, QCategoryClosure> ancestors = this.<CategoryClosure, QCategoryClosure>createList("ancestors", CategoryClosure.class, QCategoryClosure.class, PathInits.DIRECT2);
+
     public final ListPath<Category, QCategory> child = this.<Category, QCategory>createList("child", Category.class, QCategory.class, PathInits.DIRECT2);
 
     public final NumberPath<Long> id = createNumber("id", Long.class);
@@ -2,8 +2,10 @@ package jpabook.jpashop;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableAsync;
 
 @SpringBootApplication
+@EnableAsync	// applicationTaskExecutor 에서 실행 (jpashop.virtual-threads.enabled=true 면 가상 스레드)
 public class JpashopApplication {
 
 	public static void main(String[] args) {
@@ -1,15 +1,31 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberSummary;
 import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.bulk.MemberBulkUpdateResult;
+import jpabook.jpashop.service.bulk.MemberBulkUpdateService;
+import jpabook.jpashop.service.bulk.MemberImportReader;
+import jpabook.jpashop.service.bulk.MemberImportResult;
+import jpabook.jpashop.service.bulk.MemberImportService;
+import jpabook.jpashop.service.bulk.MemberPatch;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotEmpty;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,7 +35,12 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class MemberApiController {
 
+    private static final int MAX_KEYSET_LIMIT = 1000;
+
     private final MemberService memberService;
+    private final MemberImportService memberImportService;
+    private final MemberBulkUpdateService memberBulkUpdateService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/api/v1/members")
     //@RequestBody : Jason으로 온 Body를 Member로 바로 매핑해줌
@@ -37,13 +58,34 @@ public class MemberApiController {
         return new CreateMemberResponse(id);
     }
 
+    // 회원 대량 가져오기 : 본문을 한 행씩 읽어 chunk 단위 트랜잭션으로 저장하고 실패한 행과 처리 속도를 반환한다
+    // 예) curl -H 'Content-Type: application/json' --data-binary @members.json /api/v2/members/bulk
+    @PostMapping(value = "/api/v2/members/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public MemberImportResult importMembersJson(InputStream body) throws IOException {
+        return memberImportService.importMembers(MemberImportReader.json(body, objectMapper));
+    }
+
+    // 예) curl -H 'Content-Type: text/csv' --data-binary @members.csv /api/v2/members/bulk
+    @PostMapping(value = "/api/v2/members/bulk", consumes = "text/csv")
+    public MemberImportResult importMembersCsv(InputStream body) throws IOException {
+        return memberImportService.importMembers(MemberImportReader.csv(body));
+    }
+
     @PutMapping("/api/v2/members/{id}")
     public UpdateMemberResponse updateMemberV2(@PathVariable("id") Long id,
                                                @RequestBody @Valid UpdateMemberRequest request) {
 
-        memberService.update(id, request.getName());
-        Member findMember = memberService.findOne(id);
-        return new UpdateMemberResponse(findMember.getId(), findMember.getName());
+        // 변경된 회원을 update 트랜잭션에서 바로 반환받는다 (다시 조회하는 select 와 트랜잭션이 없다)
+        MemberSummary updated = memberService.update(id, request.getName());
+        return new UpdateMemberResponse(updated.getId(), updated.getName());
+    }
+
+    // 회원 일괄 부분 수정 : [{"id": 1, "name": "..."}, {"id": 2, "city": "..."}] (null/생략한 항목은 유지)
+    @PatchMapping("/api/v2/members")
+    public MemberBulkUpdateResult updateMembers(@RequestBody List<MemberPatch> patches) {
+
+        // 엔티티를 조회하지 않고 chunk 마다 JDBC batch update 한 번, 커밋 한 번으로 반영한다
+        return memberBulkUpdateService.update(patches);
     }
 
     @GetMapping("/api/v1/members")
@@ -51,24 +93,56 @@ public class MemberApiController {
         return memberService.findMembers();
     }
 
+    // 예) /api/v2/members?page=0&size=20
     @GetMapping("/api/v2/members")
-    public Result memberV2() {
-        List<Member> findmembers = memberService.findMembers();
-        List<MemberDto> collect = findmembers.stream()
+    public Result<List<MemberDto>> memberV2(@PageableDefault(size = 20, sort = "id") Pageable pageable) {
+
+        // 전체 회원 엔티티(orders 컬렉션 프록시 포함)를 읽지 않고 한 페이지의 이름만 DTO 로 조회한다.
+        // count 는 별도의 count 쿼리 결과(전체 회원 수)
+        Page<MemberSummary> page = memberService.findMemberSummaries(pageable);
+        List<MemberDto> collect = page.getContent().stream()
                 .map(m -> new MemberDto(m.getName()))
                 .collect(Collectors.toList());
 
-        return new Result(collect.size(), collect);
+        return new Result<>(page.getTotalElements(), collect);
 
     }
 
+    // 예) /api/v3/members?limit=100, 다음 페이지는 /api/v3/members?afterId={nextAfterId}&limit=100
+    @GetMapping("/api/v3/members")
+    public SliceResult<MemberDto> memberV3(
+            @RequestParam(value = "afterId", required = false) Long afterId,
+            @RequestParam(value = "limit", defaultValue = "100") int limit
+    ) {
+
+        if (limit < 1 || limit > MAX_KEYSET_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_KEYSET_LIMIT);
+        }
+
+        // keyset 페이징 : count 쿼리도, offset 만큼 읽고 버리는 행도 없다
+        List<MemberSummary> summaries = memberService.findMemberSummariesAfter(afterId, limit);
+        List<MemberDto> collect = summaries.stream()
+                .map(m -> new MemberDto(m.getName()))
+                .collect(Collectors.toList());
+
+        Long nextAfterId = summaries.size() == limit ? summaries.get(summaries.size() - 1).getId() : null;
+        return new SliceResult<>(collect, nextAfterId);
+    }
+
     @Data
     @AllArgsConstructor
     static class Result<T> {
-        private int count;
+        private long count;
         private T data;
     }
 
+    @Data
+    @AllArgsConstructor
+    static class SliceResult<T> {
+        private List<T> data;
+        private Long nextAfterId;   // 마지막 페이지면 null
+    }
+
     @Data
     @AllArgsConstructor
     static class MemberDto {
@@ -1,25 +1,41 @@
 package jpabook.jpashop.api;
 
-import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
-import jpabook.jpashop.domain.OrderItem;
-import jpabook.jpashop.domain.OrderStatus;
-import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderCursor;
 import jpabook.jpashop.repository.OrderSearch;
-import jpabook.jpashop.repository.order.query.OrderFlatDto;
-import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.OrderSearchDto;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
-import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.OrderLine;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.async.AsyncOrderService;
+import jpabook.jpashop.service.async.OrderTicket;
+import jpabook.jpashop.service.query.OrderDto;
+import jpabook.jpashop.service.query.OrderListCache;
+import jpabook.jpashop.service.query.OrderQueryService;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.time.LocalDateTime;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.*;
 
@@ -27,28 +43,59 @@ import static java.util.stream.Collectors.*;
 @RequiredArgsConstructor
 public class OrderApiController {
 
-    private final OrderRepository orderRepository;
-    private final OrderQueryRepository orderQueryRepository;
+    private static final int MAX_CURSOR_LIMIT = 1000;
+    private static final int MAX_PAGE_LIMIT = 1000;    // 한 페이지의 주문을 모두 메모리에서 접으므로 크기를 제한한다
 
-    @GetMapping("/api/v1/orders")
-    public List<Order> ordersV1() {
-        List<Order> all = orderRepository.findAllByCriteria(new OrderSearch());
-        for (Order order : all) {
-           order.getMember().getName();
-           order.getDelivery().getAddress();
+    private final OrderQueryService orderQueryService;
+    private final OrderListCache orderListCache;
+    private final OrderService orderService;
+    private final AsyncOrderService asyncOrderService;
+
+    @PostMapping("/api/v1/orders")
+    public CreateOrderResponse saveOrderV1(@RequestBody @Valid CreateOrderRequest request) {
 
-           List<OrderItem> orderItems = order.getOrderItems();
-           orderItems.stream().forEach(o -> o.getItem().getName());
+        // POST /order 는 상품 하나만 주문할 수 있어 장바구니는 N번의 요청(N번의 트랜잭션, N개의 배송)이 필요했다.
+        // 한 번의 트랜잭션에서 상품을 in 쿼리로 한꺼번에 조회하고 하나의 주문으로 저장한다.
+        List<OrderLine> lines = request.getItems().stream()
+                .map(i -> new OrderLine(i.getItemId(), i.getCount()))
+                .collect(toList());
+
+        try {
+            return new CreateOrderResponse(orderService.order(request.getMemberId(), lines));
+        } catch (IllegalArgumentException e) {
+            // 없는 회원/상품, 잘못된 수량. 재고 부족(NotEnoughStockException)은 409
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
         }
-        return all;
+    }
+
+    @PostMapping("/api/orders/async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public CreateOrderTicketResponse saveOrderAsync(@RequestBody @Valid CreateOrderRequest request) {
+
+        // 주문을 대기열에 넣고 바로 응답한다. 작업 스레드가 모아서 한 트랜잭션(micro-batch)으로 저장한다.
+        // 결과는 GET /api/orders/tickets/{ticket} 으로 확인한다. 대기열이 가득 차면 503
+        List<OrderLine> lines = request.getItems().stream()
+                .map(i -> new OrderLine(i.getItemId(), i.getCount()))
+                .collect(toList());
+
+        return new CreateOrderTicketResponse(asyncOrderService.submit(request.getMemberId(), lines));
+    }
+
+    @GetMapping("/api/orders/tickets/{ticket}")
+    public OrderTicket orderTicket(@PathVariable("ticket") String ticket) {
+        return asyncOrderService.findTicket(ticket)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown or expired ticket: " + ticket));
+    }
+
+    @GetMapping("/api/v1/orders")
+    public List<Order> ordersV1() {
+        // open-in-view 가 꺼져 있으므로 지연 로딩 초기화는 서비스의 트랜잭션 안에서 한다
+        return orderQueryService.findOrdersWithAssociations();
     }
 
     @GetMapping("/api/v2/orders")
     public List<OrderDto> ordersV2() {
-        List<Order> orders = orderRepository.findAllByCriteria(new OrderSearch());
-        return orders.stream()
-                .map(OrderDto::new)
-                .collect(toList());
+        return orderQueryService.findOrderDtos();
     }
 
     @GetMapping("/api/v3/orders")
@@ -63,12 +110,7 @@ public class OrderApiController {
 
         // 2개 이상의 1대다 관계에 대한 패치조인은 사용해선 안된다.
 
-        List<Order> orders = orderRepository.findAllWithItem();
-        List<OrderDto> result = orders.stream()
-                .map(o -> new OrderDto(o))
-                .collect(toList());
-
-        return result;
+        return orderQueryService.findOrderDtosWithItems();
     }
 
     @GetMapping("/api/v3.1/orders")
@@ -84,77 +126,137 @@ public class OrderApiController {
 
         // %% default batch fetch size 옵션은 컬렉션이나 프록시 객체들을 in 쿼리를 사용하여 한꺼번에 조회하는 설정이다.
 
-        List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit);
-        List<OrderDto> result = orders.stream()
-                .map(o -> new OrderDto(o))
-                .collect(toList());
+        return orderQueryService.findOrderDtos(offset, limit);
+    }
+
+    @GetMapping("/api/v3.2/orders")
+    public CursorResult<OrderDto> ordersV3_cursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit
+    ) {
+
+        // v3.1 의 offset 페이징은 앞의 offset 개의 행을 모두 읽고 버리므로 뒤 페이지일수록 느려진다.
+        // (orderDate, order_id) 기준 keyset 페이징은 마지막으로 본 행 다음부터 인덱스를 타고 읽으므로 페이지 깊이와 무관하다.
+        // 컬렉션(orderItems, item)은 v3.1 과 동일하게 default_batch_fetch_size 로 in 쿼리 조회된다.
+
+        if (limit < 1 || limit > MAX_CURSOR_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_CURSOR_LIMIT);
+        }
+        OrderCursor after = null;
+        if (StringUtils.hasText(cursor)) {
+            try {
+                after = OrderCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+        }
+        List<OrderDto> result = orderQueryService.findOrderDtos(after, limit);
 
-        return result;
+        String nextCursor = null;
+        if (result.size() == limit) {
+            OrderDto last = result.get(result.size() - 1);
+            nextCursor = new OrderCursor(last.getOrderDate(), last.getOrderId()).encode();
+        }
+        return new CursorResult<>(result, nextCursor);
     }
-    
+
     // 챕터 결론
     // toOne 관계는 fetch join을 이용하여 최적화 하고,
     // 컬렉션, toMany 등 나머지는 hibernate의 default_batch_fetch_size 옵션으로 최적화하자
 
     @GetMapping("/api/v4/orders")
     public List<OrderQueryDto> ordersV4() {
-        return orderQueryRepository.findOrderQueryDtos();
+        return orderQueryService.findOrderQueryDtos();
     }
 
     @GetMapping("/api/v5/orders")
     public List<OrderQueryDto> ordersV5() {
-        return orderQueryRepository.findAllByDto_optimization();
+        return orderListCache.ordersWithItems();    // 캐시 miss 시 findAllByDto_optimization
     }
 
-    @GetMapping("/api/v6/orders")
-    public List<OrderQueryDto> ordersV6() {
-        List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
+    @GetMapping(value = "/api/v6/orders", produces = "application/json")
+    public void ordersV6(HttpServletResponse response) throws IOException {
 
-        return flats.stream()
-                .collect(groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
-                        mapping(o-> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), toList())
-                )).entrySet().stream()
-                .map(e -> new OrderQueryDto(e.getKey().getOrderId(), e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(), e.getKey().getAddress(), e.getValue()))
-                .collect(Collectors.toList());
+        // groupingBy 는 OrderQueryDto 의 equals/hashCode 에 의존하고, 조회 순서를 잃어버리며,
+        // 뻥튀기된 전체 행과 HashMap 을 동시에 메모리에 들고 있어야 한다.
+        // order id 로 정렬된 행을 인접한 것끼리 한 번에 접으면 순서가 유지되고 현재 주문 하나만 들고 있으면 된다.
+        // 행은 DB 커서에서 읽고, 접은 주문은 바로 응답 스트림에 쓴다 (응답 모양은 이전과 같은 JSON 배열)
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        orderQueryService.writeOrderQueryDtosFlat(response.getOutputStream());
+    }
+
+    @GetMapping("/api/v6.1/orders")
+    public List<OrderQueryDto> ordersV6_paging(
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "100") int limit
+    ) {
+        if (offset < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "offset must not be negative");
+        }
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_LIMIT);
+        }
+        // flat 조회는 행 단위로 페이징하면 주문이 중간에 잘린다. 주문 단위로 페이징한다.
+        return orderQueryService.findOrderQueryDtosFlat(offset, limit);
     }
 
+    @GetMapping(value = "/api/orders/export", produces = "application/x-ndjson")
+    public void exportOrders(HttpServletResponse response) throws IOException {
 
-    @Data
-    static class OrderDto {
+        // 모든 v1~v6 는 List 를 메모리에 다 만든 후 Jackson 이 직렬화한다.
+        // export 는 DB 커서에서 한 행씩 읽어 바로 응답 스트림에 쓴다.
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        orderQueryService.exportOrderFlats(response.getOutputStream());
+    }
 
-        private Long orderId;
-        private String name;
-        private LocalDateTime orderDate;
-        private OrderStatus orderStatus;
-        private Address address;
-        private List<OrderItemDto> orderItems;
-
-
-        public OrderDto(Order order) {
-            orderId = order.getId();
-            name = order.getMember().getName();
-            orderDate = order.getOrderDate();
-            orderStatus = order.getStatus();
-            address = order.getDelivery().getAddress();
-            orderItems = order.getOrderItems().stream()
-                    .map(OrderItemDto::new)
-                    .collect(toList());
+    // 예) /api/orders/search?orderStatus=ORDER&memberName=user&nameMatch=PREFIX&page=0&size=20&sort=orderDate,desc
+    @GetMapping("/api/orders/search")
+    public Page<OrderSearchDto> searchOrders(OrderSearch orderSearch, Pageable pageable) {
+        try {
+            return orderService.searchOrders(orderSearch, pageable);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);     // 지원하지 않는 정렬 속성
         }
+    }
+
+    @Data
+    static class CreateOrderRequest {
+        @NotNull
+        private Long memberId;
 
+        @NotEmpty
+        @Valid
+        private List<OrderLineRequest> items;
     }
 
     @Data
-    static class OrderItemDto {
-        private String itemName;
-        private int orderPrice;
+    static class OrderLineRequest {
+        @NotNull
+        private Long itemId;
+
+        @Positive
         private int count;
+    }
 
+    @Data
+    @AllArgsConstructor
+    static class CreateOrderResponse {
+        private Long orderId;
+    }
 
-        public OrderItemDto(OrderItem orderItem) {
-            itemName = orderItem.getItem().getName();
-            orderPrice = orderItem.getOrderPrice();
-            count = orderItem.getCount();
-        }
+    @Data
+    @AllArgsConstructor
+    static class CreateOrderTicketResponse {
+        private String ticket;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CursorResult<T> {
+        private List<T> data;
+        private String nextCursor;  // 마지막 페이지면 null
     }
 
 }
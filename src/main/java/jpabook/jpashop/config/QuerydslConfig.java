@@ -0,0 +1,17 @@
+package jpabook.jpashop.config;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.persistence.EntityManager;
+
+@Configuration
+public class QuerydslConfig {
+
+    // 주입받는 EntityManager 는 현재 트랜잭션의 EntityManager 로 위임하는 프록시이므로 싱글톤으로 공유해도 안전하다
+    @Bean
+    public JPAQueryFactory jpaQueryFactory(EntityManager em) {
+        return new JPAQueryFactory(em);
+    }
+}
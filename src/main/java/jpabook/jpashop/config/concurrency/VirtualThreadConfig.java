@@ -0,0 +1,45 @@
+package jpabook.jpashop.config.concurrency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * jpashop.virtual-threads.enabled=true 이면 Tomcat 요청 처리와 @Async/applicationTaskExecutor 작업을 가상 스레드에서 실행한다.
+ *
+ * 요청 스레드가 JDBC 에서 블로킹되어도 캐리어(플랫폼) 스레드는 다른 요청을 처리하므로 server.tomcat.threads.max 가 동시 처리 수의 상한이 아니게 된다.
+ * 대신 DB 동시성은 DataSourceConcurrencyLimiter 의 세마포어(커넥션 풀 크기)로 제한한다.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = VirtualThreadProperties.PREFIX, name = "enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        log.info("request and async tasks run on virtual threads");
+        return executor;
+    }
+
+    // 외부 executor 를 넘기면 Tomcat 은 자체 워커 풀(threads.max)을 만들지 않는다. 동시 연결 수는 server.tomcat.max-connections 로 제한된다.
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    // 스프링 부트의 applicationTaskExecutor(ThreadPoolTaskExecutor)를 대체한다. @Async 는 taskExecutor 이름으로 찾는다.
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+}
@@ -0,0 +1,24 @@
+package jpabook.jpashop.config.concurrency;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * jpashop.virtual-threads : 요청 처리(Tomcat)와 비동기 작업을 가상 스레드로 실행한다. JDK 21 이상에서만 켤 수 있다.
+ */
+@Component
+@ConfigurationProperties(prefix = VirtualThreadProperties.PREFIX)
+@Getter @Setter
+public class VirtualThreadProperties {
+
+    public static final String PREFIX = "jpashop.virtual-threads";
+
+    private boolean enabled = false;
+    private Integer dbPermits;                              // 동시에 커넥션을 쓸 수 있는 스레드 수. 지정하지 않으면 커넥션 풀 크기
+    private Duration dbPermitTimeout = Duration.ofSeconds(3);   // 넘으면 SQLTransientConnectionException
+
+}
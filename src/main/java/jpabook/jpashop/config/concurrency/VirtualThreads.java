@@ -0,0 +1,29 @@
+package jpabook.jpashop.config.concurrency;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 기본 빌드(Java 18)에서도 컴파일되도록 가상 스레드 API 는 리플렉션으로 호출한다.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() : 작업마다 새 가상 스레드를 만든다 (풀링하지 않는다)
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | InvocationTargetException e) {
+            // JDK 18 이하는 메서드가 없고, 19/20 은 --enable-preview 없이 호출하면 UnsupportedOperationException
+            throw new IllegalStateException("Virtual threads require JDK 21 or later (./gradlew -PvirtualThreads bootRun), current: "
+                    + Runtime.version(), e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package jpabook.jpashop.config.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 커넥션을 얻기 전에 세마포어 허가를 받고, 커넥션을 close 할 때 반납한다.
+ *
+ * 가상 스레드는 수천 개가 동시에 커넥션을 요청할 수 있다. 풀 크기만큼만 풀에 들어가게 하고 나머지는 세마포어에서 (캐리어 스레드를 놓아준 채) 기다리게 한다.
+ * JDBC 드라이버의 synchronized 구간에서 블로킹되는 가상 스레드는 캐리어 스레드를 붙잡으므로(pinning), 그 수도 허가 수로 제한된다.
+ *
+ * 허가를 가진 스레드가 커넥션을 하나 더 얻는 경우(REQUIRES_NEW 등)는 허가 없이 통과시킨다.
+ * 모든 허가를 가진 스레드가 두 번째 허가를 기다리면 누구도 반납하지 못해 타임아웃까지 멈추기 때문이다.
+ * 중첩 커넥션도 풀에서는 하나를 더 쓰므로, 중첩해서 얻는 곳이 있다면 허가 수를 풀 크기보다 작게 둔다.
+ * 허가를 가진 스레드가 다른 스레드의 조회를 기다리는 경우(병렬 InClauseBatchLoader)도 같으므로,
+ * 그런 작업은 exempt 로 감싸 제한 없이 실행한다. 그 스레드 수는 작업 쪽 스레드 풀이 제한하며 커넥션 풀 크기에 포함해야 한다.
+ */
+public class ConcurrencyLimitingDataSource extends DelegatingDataSource {
+
+    private static final ThreadLocal<Boolean> EXEMPT = new ThreadLocal<>();
+
+    private final Semaphore permits;
+    private final long timeoutNanos;
+    private final ThreadLocal<AtomicInteger> held = ThreadLocal.withInitial(AtomicInteger::new);    // 스레드가 가진 허가 수
+
+    public ConcurrencyLimitingDataSource(DataSource targetDataSource, int permits, Duration timeout) {
+        super(targetDataSource);
+        this.permits = new Semaphore(permits, true);    // 먼저 기다린 요청부터
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * 이 스레드 풀 등에서 실행할 작업을 허가 없이 커넥션을 얻도록 감싼다
+     */
+    public static Runnable exempt(Runnable task) {
+        return () -> {
+            EXEMPT.set(Boolean.TRUE);
+            try {
+                task.run();
+            } finally {
+                EXEMPT.remove();
+            }
+        };
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        AtomicInteger owner = acquire();
+        try {
+            return limited(super.getConnection(), owner);
+        } catch (SQLException | RuntimeException e) {
+            release(owner);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        AtomicInteger owner = acquire();
+        try {
+            return limited(super.getConnection(username, password), owner);
+        } catch (SQLException | RuntimeException e) {
+            release(owner);
+            throw e;
+        }
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * 허가를 받으면 이 스레드의 허가 수를, 허가 없이 통과하면(중첩, exempt) null 을 반환한다
+     */
+    private AtomicInteger acquire() throws SQLException {
+        AtomicInteger count = held.get();
+        if (count.get() > 0 || EXEMPT.get() != null) {
+            return null;
+        }
+        try {
+            if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("Database concurrency limit reached, request timed out after "
+                        + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms (waiting: " + permits.getQueueLength() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database permit", e);
+        }
+        count.incrementAndGet();
+        return count;
+    }
+
+    // close 는 다른 스레드에서 호출될 수도 있으므로 허가를 받은 스레드의 카운터를 직접 줄인다
+    private void release(AtomicInteger owner) {
+        if (owner != null) {
+            owner.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private Connection limited(Connection connection, AtomicInteger owner) {
+        return (Connection) Proxy.newProxyInstance(ConcurrencyLimitingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new PermitReleasingHandler(connection, owner));
+    }
+
+    /**
+     * close 를 여러 번 호출해도 허가는 한 번만 반납한다.
+     * unwrap/isWrapperFor(Connection.class) 는 원본이 아니라 이 프록시를 돌려준다 (원본을 close 하면 허가가 새지 않도록)
+     */
+    private class PermitReleasingHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final AtomicInteger owner;     // 허가 없이 얻은 커넥션이면 null
+        private boolean closed;
+
+        PermitReleasingHandler(Connection target, AtomicInteger owner) {
+            this.target = target;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    if (closed) {
+                        return null;
+                    }
+                    closed = true;
+                    try {
+                        target.close();
+                    } finally {
+                        release(owner);
+                    }
+                    return null;
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    return target.unwrap((Class<?>) args[0]);
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy) || target.isWrapperFor((Class<?>) args[0]);
+                default:
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+            }
+        }
+    }
+}
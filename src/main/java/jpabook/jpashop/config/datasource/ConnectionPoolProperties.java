@@ -0,0 +1,35 @@
+package jpabook.jpashop.config.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * jpashop.datasource.pool : 애플리케이션의 모든 Hikari 풀(기본 DataSource, primary/replica)에 공통으로 적용한다.
+ * 값을 지정하지 않은 항목은 spring.datasource.hikari 또는 Hikari 기본값을 그대로 사용한다.
+ * BeanPostProcessor(HikariPoolConfigurer)에서 바인딩하므로 @Component 로 등록하지 않는다.
+ */
+@Getter @Setter
+public class ConnectionPoolProperties {
+
+    static final String PREFIX = "jpashop.datasource.pool";
+
+    private Integer maximumPoolSize;
+    private Integer minimumIdle;
+    private Duration connectionTimeout;         // 커넥션을 얻기까지 기다리는 최대 시간 (넘으면 SQLTransientConnectionException)
+    private Duration idleTimeout;
+    private Duration maxLifetime;
+    private Duration leakDetectionThreshold;    // 이 시간보다 오래 반납되지 않은 커넥션을 획득한 스택과 함께 경고
+    private StatementCache statementCache = new StatementCache();
+
+    /**
+     * 드라이버 수준의 PreparedStatement 캐시. 드라이버마다 속성 이름이 달라 지원하는 드라이버에만 적용한다.
+     * H2 는 세션마다 파싱한 쿼리를 캐시하며 크기는 URL 의 QUERY_CACHE_SIZE 로 정한다.
+     */
+    @Getter @Setter
+    public static class StatementCache {
+        private int size = 0;           // 0 이면 사용하지 않는다
+        private int sqlLimit = 2048;    // 이보다 긴 SQL 은 캐시하지 않는다 (MySQL)
+    }
+}
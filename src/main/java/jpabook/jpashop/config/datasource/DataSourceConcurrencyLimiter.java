@@ -0,0 +1,98 @@
+package jpabook.jpashop.config.datasource;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.config.concurrency.VirtualThreadProperties;
+import jpabook.jpashop.repository.support.InClauseBatchProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * 가상 스레드 모드에서 애플리케이션 DataSource(dataSource 빈)를 ConcurrencyLimitingDataSource 로 감싼다.
+ * 허가 수는 jpashop.virtual-threads.db-permits, 없으면 커넥션 풀 최대 크기이다.
+ * 병렬 InClauseBatchLoader 의 작업 스레드는 허가 없이 커넥션을 얻으므로 기본 허가 수에서 그 스레드 수만큼 뺀다.
+ * routing 모드에서는 primary 풀 크기를 기준으로 한다 (replica 로 가는 읽기도 같은 허가를 사용).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = VirtualThreadProperties.PREFIX, name = "enabled", havingValue = "true")
+public class DataSourceConcurrencyLimiter implements BeanPostProcessor, EnvironmentAware, BeanFactoryAware, Ordered {
+
+    private static final String DATA_SOURCE_BEAN_NAME = "dataSource";
+    private static final int HIKARI_DEFAULT_POOL_SIZE = 10;
+
+    private VirtualThreadProperties properties;
+    private ConnectionPoolProperties poolProperties;
+    private InClauseBatchProperties inClauseBatchProperties;
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        Binder binder = Binder.get(environment);
+        properties = binder.bind(VirtualThreadProperties.PREFIX, VirtualThreadProperties.class)
+                .orElseGet(VirtualThreadProperties::new);
+        poolProperties = binder.bind(ConnectionPoolProperties.PREFIX, ConnectionPoolProperties.class)
+                .orElseGet(ConnectionPoolProperties::new);
+        inClauseBatchProperties = binder.bind(InClauseBatchProperties.PREFIX, InClauseBatchProperties.class)
+                .orElseGet(InClauseBatchProperties::new);
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) {
+        meterRegistry = beanFactory.getBeanProvider(MeterRegistry.class);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!DATA_SOURCE_BEAN_NAME.equals(beanName) || !(bean instanceof DataSource)) {
+            return bean;
+        }
+        int permits = permits((DataSource) bean);
+        ConcurrencyLimitingDataSource limited = new ConcurrencyLimitingDataSource((DataSource) bean, permits, properties.getDbPermitTimeout());
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder("jpashop.datasource.permits.available", limited, ConcurrencyLimitingDataSource::getAvailablePermits)
+                    .description("Database permits not in use")
+                    .register(registry);
+            Gauge.builder("jpashop.datasource.permits.waiting", limited, ConcurrencyLimitingDataSource::getQueueLength)
+                    .description("Threads waiting for a database permit")
+                    .register(registry);
+        });
+        log.info("database concurrency limited to {} permits", permits);
+        return limited;
+    }
+
+    private int permits(DataSource dataSource) {
+        if (properties.getDbPermits() != null) {
+            return properties.getDbPermits();
+        }
+        int reserved = inClauseBatchProperties.isParallel() ? inClauseBatchProperties.getThreads() : 0;
+        return Math.max(1, poolSize(dataSource) - reserved);
+    }
+
+    private int poolSize(DataSource dataSource) {
+        if (poolProperties.getMaximumPoolSize() != null) {
+            return poolProperties.getMaximumPoolSize();
+        }
+        HikariDataSource hikari = DataSourceUnwrapper.unwrap(dataSource, HikariConfigMXBean.class, HikariDataSource.class);
+        return hikari != null ? hikari.getMaximumPoolSize() : HIKARI_DEFAULT_POOL_SIZE;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
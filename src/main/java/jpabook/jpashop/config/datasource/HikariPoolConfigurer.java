@@ -0,0 +1,81 @@
+package jpabook.jpashop.config.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * ConnectionPoolProperties 를 HikariDataSource 빈에 적용한다.
+ * spring.datasource.hikari 바인딩(ConfigurationPropertiesBindingPostProcessor) 이후에 실행되어 jpashop.datasource.pool 값이 우선한다.
+ * 빈이 아닌 풀(RoutingDataSourceConfig 의 primary/replica)은 configure 를 직접 호출한다.
+ */
+@Slf4j
+@Component
+public class HikariPoolConfigurer implements BeanPostProcessor, EnvironmentAware, Ordered {
+
+    private ConnectionPoolProperties properties;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        properties = Binder.get(environment)
+                .bind(ConnectionPoolProperties.PREFIX, ConnectionPoolProperties.class)
+                .orElseGet(ConnectionPoolProperties::new);
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource) {
+            configure((HikariDataSource) bean);
+        }
+        return bean;
+    }
+
+    public void configure(HikariConfig pool) {
+        if (properties.getMaximumPoolSize() != null) {
+            pool.setMaximumPoolSize(properties.getMaximumPoolSize());
+        }
+        if (properties.getMinimumIdle() != null) {
+            pool.setMinimumIdle(properties.getMinimumIdle());
+        }
+        if (properties.getConnectionTimeout() != null) {
+            pool.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+        }
+        if (properties.getIdleTimeout() != null) {
+            pool.setIdleTimeout(properties.getIdleTimeout().toMillis());
+        }
+        if (properties.getMaxLifetime() != null) {
+            pool.setMaxLifetime(properties.getMaxLifetime().toMillis());
+        }
+        if (properties.getLeakDetectionThreshold() != null) {
+            pool.setLeakDetectionThreshold(properties.getLeakDetectionThreshold().toMillis());
+        }
+        configureStatementCache(pool, properties.getStatementCache());
+    }
+
+    private void configureStatementCache(HikariConfig pool, ConnectionPoolProperties.StatementCache cache) {
+        if (cache.getSize() <= 0 || pool.getJdbcUrl() == null) {
+            return;
+        }
+        String url = pool.getJdbcUrl();
+        if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+            pool.addDataSourceProperty("cachePrepStmts", "true");
+            pool.addDataSourceProperty("prepStmtCacheSize", String.valueOf(cache.getSize()));
+            pool.addDataSourceProperty("prepStmtCacheSqlLimit", String.valueOf(cache.getSqlLimit()));
+        } else if (url.startsWith("jdbc:postgresql:")) {
+            pool.addDataSourceProperty("preparedStatementCacheQueries", String.valueOf(cache.getSize()));
+        } else {
+            log.info("statement cache is not supported by the driver of {}, ignored", pool.getPoolName());
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,35 @@
+package jpabook.jpashop.config.datasource;
+
+import jpabook.jpashop.service.OrderChangedEvent;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * 주문이 커밋된 직후에는 replica 에 아직 반영되지 않았을 수 있으므로 replicaLag 동안 읽기를 primary 로 보낸다.
+ * 요청(사용자)을 구분하지 않는 전역 창이므로, 주문 직후 목록 화면으로 이동해도 방금 한 주문이 보인다.
+ */
+public class ReplicaLagGuard {
+
+    private final long lagNanos;
+    private volatile long lastWriteNanos;
+
+    public ReplicaLagGuard(Duration replicaLag) {
+        this.lagNanos = replicaLag.toNanos();
+        this.lastWriteNanos = System.nanoTime() - lagNanos;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderChanged(OrderChangedEvent event) {
+        markWrite();
+    }
+
+    public void markWrite() {
+        lastWriteNanos = System.nanoTime();
+    }
+
+    public boolean readsMustUsePrimary() {
+        return System.nanoTime() - lastWriteNanos < lagNanos;
+    }
+}
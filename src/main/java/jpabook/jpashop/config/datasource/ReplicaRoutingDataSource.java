@@ -0,0 +1,156 @@
+package jpabook.jpashop.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * readOnly 트랜잭션은 replica 로, 나머지는 primary 로 보낸다.
+ * 트랜잭션 시작 시점에는 readOnly 여부가 아직 설정되지 않으므로 반드시 LazyConnectionDataSourceProxy 로 감싸서
+ * 첫 SQL 실행 시점에 커넥션을 얻도록 해야 한다.
+ *
+ * replica 에서 커넥션을 얻지 못하면 retryAfter 동안 제외하고 primary 로 대신 연결한다.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Map<String, Replica> replicasByName = new HashMap<>();
+    private final RoutingDataSourceProperties.Selection selection;
+    private final long retryAfterNanos;
+    private final ReplicaLagGuard lagGuard;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicaDataSources,
+                                    RoutingDataSourceProperties.Selection selection, Duration retryAfter,
+                                    ReplicaLagGuard lagGuard) {
+        this.primary = primary;
+        this.selection = selection;
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.lagGuard = lagGuard;
+
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        targets.put(PRIMARY, primary);
+        replicaDataSources.forEach((name, dataSource) -> {
+            Replica replica = new Replica(name, dataSource);
+            replicas.add(replica);
+            replicasByName.put(name, replica);
+            targets.put(name, dataSource);
+        });
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || lagGuard.readsMustUsePrimary()) {
+            return PRIMARY;
+        }
+        Replica replica = select();
+        return replica == null ? PRIMARY : replica.name;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        Replica replica = replicasByName.get(key);
+        if (replica == null) {
+            return primary.getConnection();
+        }
+        try {
+            return replica.dataSource.getConnection();
+        } catch (SQLException e) {
+            replica.downUntilNanos = System.nanoTime() + retryAfterNanos;
+            log.warn("replica {} unavailable, falling back to primary for {} ms", replica.name, retryAfterNanos / 1_000_000, e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    private Replica select() {
+        long now = System.nanoTime();
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+
+        if (selection == RoutingDataSourceProperties.Selection.LEAST_CONNECTIONS) {
+            Replica least = null;
+            int leastActive = Integer.MAX_VALUE;
+            for (Replica replica : replicas) {
+                int active = replica.activeConnections();
+                if (replica.isAvailable(now) && active < leastActive) {
+                    least = replica;
+                    leastActive = active;
+                }
+            }
+            return least;
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isAvailable(now)) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(primary);
+        replicas.forEach(replica -> closeQuietly(replica.dataSource));
+    }
+
+    private void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            ((HikariDataSource) dataSource).close();
+        }
+    }
+
+    private static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile long downUntilNanos;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.downUntilNanos = System.nanoTime();
+        }
+
+        boolean isAvailable(long now) {
+            return now - downUntilNanos >= 0;
+        }
+
+        int activeConnections() {
+            if (dataSource instanceof HikariDataSource) {
+                HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+                return pool == null ? 0 : pool.getActiveConnections();    // 첫 연결 전에는 풀이 없다
+            }
+            return 0;
+        }
+    }
+}
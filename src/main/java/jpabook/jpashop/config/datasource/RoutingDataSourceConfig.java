@@ -0,0 +1,88 @@
+package jpabook.jpashop.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * jpashop.datasource.routing.enabled=true 이면 spring.datasource 를 primary 로,
+ * jpashop.datasource.routing.replicas 를 읽기 전용 replica 로 사용하는 DataSource 를 만든다.
+ * 설정하지 않으면 스프링 부트의 기본 DataSource 하나만 사용한다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.datasource.routing", name = "enabled", havingValue = "true")
+public class RoutingDataSourceConfig {
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    public ReplicaLagGuard replicaLagGuard(RoutingDataSourceProperties properties) {
+        return new ReplicaLagGuard(properties.getReplicaLag());
+    }
+
+    // JPA 트랜잭션은 시작할 때 커넥션을 얻지만 readOnly 여부는 그 이후에 설정된다.
+    // 실제 커넥션 획득을 첫 SQL 실행까지 미루어 라우팅 시점에 readOnly 여부를 알 수 있게 한다.
+    // 라우팅 DataSource 는 빈으로 등록하지 않는다 (p6spy 데코레이터가 두 번 감싸지 않도록)
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties dataSourceProperties,
+                                 RoutingDataSourceProperties properties,
+                                 ReplicaLagGuard replicaLagGuard,
+                                 HikariPoolConfigurer poolConfigurer,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("primary");
+        configurePool(primary, poolConfigurer, meterRegistry);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<RoutingDataSourceProperties.Replica> replicaProperties = properties.getReplicas();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            RoutingDataSourceProperties.Replica replica = replicaProperties.get(i);
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(replica.getUrl())
+                    .username(replica.getUsername())
+                    .password(replica.getPassword())
+                    .build();
+            configurePool(dataSource, poolConfigurer, meterRegistry);
+            dataSource.setPoolName("replica-" + i);
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());    // replica 별 설정이 공통 설정보다 우선
+            dataSource.setReadOnly(true);
+            replicas.put(dataSource.getPoolName(), dataSource);
+        }
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas,
+                properties.getSelection(), properties.getRetryAfter(), replicaLagGuard);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    // 빈이 아닌 풀에는 스프링 부트의 Hikari 설정/지표 연동이 적용되지 않으므로 직접 적용한다
+    private void configurePool(HikariDataSource pool, HikariPoolConfigurer poolConfigurer, ObjectProvider<MeterRegistry> meterRegistry) {
+        poolConfigurer.configure(pool);
+        meterRegistry.ifAvailable(pool::setMetricRegistry);
+    }
+
+    @PreDestroy
+    public void closePools() {
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package jpabook.jpashop.config.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "jpashop.datasource.routing")
+@Getter @Setter
+public class RoutingDataSourceProperties {
+
+    private boolean enabled = false;    // true 면 readOnly 트랜잭션을 replica 로 보낸다
+    private Selection selection = Selection.ROUND_ROBIN;
+    private Duration replicaLag = Duration.ofSeconds(1);    // 주문 커밋 후 이 시간 동안은 읽기도 primary 로 (read-your-writes)
+    private Duration retryAfter = Duration.ofSeconds(10);   // 연결에 실패한 replica 를 다시 시도하기까지의 시간
+    private List<Replica> replicas = new ArrayList<>();
+
+    public enum Selection {
+        ROUND_ROBIN,        // 차례대로
+        LEAST_CONNECTIONS   // 사용 중인 커넥션이 가장 적은 replica
+    }
+
+    @Getter @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -2,9 +2,13 @@ package jpabook.jpashop.controller;
 
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberSummary;
 import jpabook.jpashop.service.MemberService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -12,7 +16,6 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 
 import javax.validation.Valid;
-import java.util.List;
 
 // home의 href -> 주소 members/new -> MemberController의 getMapping -> members/createMemberForm HTML 파일
 
@@ -52,8 +55,9 @@ public class MemberController {
     }
 
     @GetMapping("/members")
-    public String list(Model model) {
-        List<Member> members = memberService.findMembers();
+    public String list(@PageableDefault(size = 20, sort = "id") Pageable pageable, Model model) {
+        // 이전/다음 이동만 하므로 전체 건수(count 쿼리)가 필요 없는 Slice 로 조회한다
+        Slice<MemberSummary> members = memberService.findMemberSummarySlice(pageable);
         model.addAttribute("members", members);
         return "members/memberList";
     }
@@ -7,6 +7,7 @@ import jpabook.jpashop.repository.OrderSearch;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
 import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.query.OrderQueryService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -19,6 +20,7 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderQueryService orderQueryService;
     private final MemberService memberService;
     private final ItemService itemService;
 
@@ -45,7 +47,8 @@ public class OrderController {
 
     @GetMapping("/orders")
     public String orderList(@ModelAttribute("orderSearch") OrderSearch orderSearch, Model model) {
-        List<Order> orders = orderService.findOrders(orderSearch);
+        // open-in-view 가 꺼져 있으므로 화면에서 사용하는 연관관계는 서비스에서 초기화한다
+        List<Order> orders = orderQueryService.findOrdersForView(orderSearch);
         model.addAttribute("orders", orders);
 
         return "order/orderList";
@@ -0,0 +1,260 @@
+package jpabook.jpashop.datagen;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Album;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.Movie;
+import jpabook.jpashop.domain.item.StockKeeper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * bulk 프로파일에서 대량의 회원/상품/카테고리/주문을 생성한다 (InitDB 는 주문 2건뿐이라 성능 재현이 불가능)
+ * batchSize 단위로 persist -> flush -> clear -> commit 하며, JDBC batch insert 와 pooled-lo 시퀀스를 사용한다.
+ *
+ * 주문 생성 시 회원/상품 엔티티를 조회하지 않는다.
+ * 회원은 id 만 채운 준영속 객체를, 상품은 프록시(getReference)를 연관관계에 넣어 FK 값만 사용한다.
+ */
+@Slf4j
+@Component
+@Profile("bulk")
+@RequiredArgsConstructor
+public class BulkDataGenerator implements ApplicationRunner {
+
+    private static final String[] CITIES = {"서울", "부산", "인천", "대구", "대전", "광주", "울산", "진주"};
+
+    // 재고는 상품 생성 시 충분히 넣어두므로 주문 생성 시 재고를 변경하지 않는다
+    private static final StockKeeper NO_STOCK_CHANGE = new StockKeeper() {
+        @Override
+        public void removeStock(Item item, int quantity) {
+        }
+
+        @Override
+        public void addStock(Item item, int quantity) {
+        }
+    };
+
+    private final EntityManager em;
+    private final PlatformTransactionManager transactionManager;
+    private final DataGeneratorProperties properties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        generate();
+    }
+
+    public void generate() {
+        Random random = new Random(properties.getSeed());
+        long start = System.nanoTime();
+
+        long[] memberIds = generateMembers();
+        long[] itemIds = new long[properties.getItems()];
+        int[] itemPrices = new int[properties.getItems()];
+        generateItems(random, itemIds, itemPrices);
+        generateCategories(random, itemIds);
+        generateOrders(random, memberIds, itemIds, itemPrices);
+
+        log.info("bulk data generated in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private long[] generateMembers() {
+        long[] memberIds = new long[properties.getMembers()];
+        inBatches("member", memberIds.length, i -> {
+            Member member = new Member();
+            member.setName("member" + i);
+            member.setAddress(address(i));
+            em.persist(member);
+            memberIds[i] = member.getId();
+            return 1;
+        });
+        return memberIds;
+    }
+
+    private void generateItems(Random random, long[] itemIds, int[] itemPrices) {
+        inBatches("item", itemIds.length, i -> {
+            Item item;
+            switch (i % 3) {
+                case 0:
+                    Book book = new Book();
+                    book.setAuthor("author" + random.nextInt(1_000));
+                    book.setIsbn(String.valueOf(9_780_000_000_000L + i));
+                    item = book;
+                    break;
+                case 1:
+                    Album album = new Album();
+                    album.setArtist("artist" + random.nextInt(1_000));
+                    item = album;
+                    break;
+                default:
+                    Movie movie = new Movie();
+                    movie.setDirector("director" + random.nextInt(1_000));
+                    movie.setActor("actor" + random.nextInt(5_000));
+                    item = movie;
+            }
+            item.setName("item" + i);
+            item.setPrice((1 + random.nextInt(500)) * 100);
+            item.setStockQuantity(1_000_000);
+            em.persist(item);
+            itemIds[i] = item.getId();
+            itemPrices[i] = item.getPrice();
+            return 1;
+        });
+    }
+
+    /**
+     * 카테고리 트리는 연관관계 메서드(addChildCategory)로 메모리에서 먼저 구성한 후 한 트랜잭션에서 저장한다.
+     * 상품은 하나의 카테고리에 속한다.
+     * closure table 행은 addChildCategory 가 만들고 카테고리 persist 시 cascade 로 함께 저장된다.
+     * 부모는 항상 자식보다 앞 번호이므로 flush 시점에 조상 카테고리는 이미 persist 되어 있다.
+     */
+    private void generateCategories(Random random, long[] itemIds) {
+        int count = properties.getCategories();
+        if (count == 0) {
+            return;
+        }
+
+        List<Category> categories = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Category category = new Category();
+            category.setName("category" + i);
+            if (i > 0 && random.nextInt(10) != 0) {   // 약 10% 는 최상위 카테고리
+                categories.get(random.nextInt(i)).addChildCategory(category);
+            }
+            categories.add(category);
+        }
+
+        long start = System.nanoTime();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (int i = 0; i < itemIds.length; i++) {
+                categories.get(random.nextInt(count)).getItems().add(em.getReference(Item.class, itemIds[i]));
+            }
+            for (int i = 0; i < count; i++) {
+                em.persist(categories.get(i));
+                if ((i + 1) % properties.getBatchSize() == 0) {
+                    em.flush();
+                }
+            }
+        });
+        report("category", count + itemIds.length, start);
+    }
+
+    private void generateOrders(Random random, long[] memberIds, long[] itemIds, int[] itemPrices) {
+        if (memberIds.length == 0 || itemIds.length == 0) {
+            return;
+        }
+        ZipfSampler popularity = new ZipfSampler(itemIds.length, properties.getItemSkew());
+        int[] rankToItem = shuffledIndexes(itemIds.length, random);   // 인기 상품이 id 순으로 몰리지 않도록
+        LocalDateTime now = LocalDateTime.now();
+        long orderSeconds = properties.getOrderDays() * 24L * 60 * 60;
+
+        inBatches("order", properties.getOrders(), i -> {
+            int memberIdx = random.nextInt(memberIds.length);
+            Member member = new Member();
+            member.setId(memberIds[memberIdx]);
+            member.setAddress(address(memberIdx));
+
+            int lines = 1 + random.nextInt(properties.getMaxOrderLines());
+            OrderItem[] orderItems = new OrderItem[lines];
+            for (int l = 0; l < lines; l++) {
+                int itemIdx = rankToItem[popularity.sample(random)];
+                Item item = em.getReference(Item.class, itemIds[itemIdx]);
+                orderItems[l] = OrderItem.createOrderItem(item, itemPrices[itemIdx], 1 + random.nextInt(3), NO_STOCK_CHANGE);
+            }
+
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+
+            Order order = Order.createOrder(member, delivery, orderItems);
+            order.setOrderDate(now.minusSeconds((long) (random.nextDouble() * orderSeconds)));
+            if (random.nextDouble() < properties.getCancelRate()) {
+                order.setStatus(OrderStatus.CANCEL);
+            }
+            em.persist(order);
+            return 2 + lines;   // orders, delivery, order_item
+        });
+    }
+
+    /**
+     * total 개의 행 생성을 batchSize 단위 트랜잭션으로 나누어 실행하고 초당 행 수를 기록한다
+     */
+    private void inBatches(String name, int total, RowWriter writer) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int batchSize = properties.getBatchSize();
+        long start = System.nanoTime();
+        long rows = 0;
+
+        for (int from = 0; from < total; from += batchSize) {
+            int to = Math.min(from + batchSize, total);
+            int batchFrom = from;
+            Long written = tx.execute(status -> {
+                long count = 0;
+                for (int i = batchFrom; i < to; i++) {
+                    count += writer.write(i);
+                }
+                em.flush();
+                em.clear();
+                return count;
+            });
+            rows += written;
+
+            if ((from / batchSize) % 100 == 99) {
+                log.info("{}: {}/{} ({} rows/sec)", name, to, total, rowsPerSecond(rows, start));
+            }
+        }
+        report(name, rows, start);
+    }
+
+    private void report(String name, long rows, long startNanos) {
+        log.info("{}: {} rows, {} rows/sec", name, rows, rowsPerSecond(rows, startNanos));
+    }
+
+    private long rowsPerSecond(long rows, long startNanos) {
+        long elapsed = Math.max(1, System.nanoTime() - startNanos);
+        return rows * 1_000_000_000L / elapsed;
+    }
+
+    private int[] shuffledIndexes(int n, Random random) {
+        int[] indexes = new int[n];
+        for (int i = 0; i < n; i++) {
+            indexes[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = tmp;
+        }
+        return indexes;
+    }
+
+    private Address address(int memberIdx) {
+        return new Address(CITIES[memberIdx % CITIES.length], String.valueOf(memberIdx % 1_000), String.format("%05d", memberIdx % 100_000));
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        /**
+         * i 번째 데이터를 persist 하고 생성한 행 수를 반환한다
+         */
+        int write(int i);
+    }
+}
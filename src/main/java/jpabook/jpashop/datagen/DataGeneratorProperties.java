@@ -0,0 +1,24 @@
+package jpabook.jpashop.datagen;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "jpashop.datagen")
+@Getter @Setter
+public class DataGeneratorProperties {
+
+    private int members = 100_000;
+    private int items = 10_000;         // Book, Album, Movie 를 번갈아 생성
+    private int categories = 1_000;
+    private int orders = 1_000_000;
+    private int maxOrderLines = 3;      // 주문 하나에 들어가는 최대 상품 수
+    private double itemSkew = 1.1;      // 상품 인기도 Zipf 지수 (클수록 소수 상품에 주문이 몰린다)
+    private double cancelRate = 0.1;
+    private int orderDays = 365;        // 주문일을 최근 며칠에 분포시킬지
+    private int batchSize = 1_000;      // flush/clear 및 커밋 단위
+    private long seed = 42;
+
+}
@@ -0,0 +1,34 @@
+package jpabook.jpashop.datagen;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 0 ~ n-1 을 Zipf 분포로 뽑는다. 순위 k 의 확률은 1 / (k+1)^s 에 비례한다.
+ * 누적분포를 미리 계산해두고 이진 탐색으로 샘플링한다 (O(log n))
+ */
+public class ZipfSampler {
+
+    private final double[] cdf;
+
+    public ZipfSampler(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+    }
+
+    public int sample(Random random) {
+        int idx = Arrays.binarySearch(cdf, random.nextDouble());
+        int rank = idx >= 0 ? idx : -idx - 1;
+        return Math.min(rank, cdf.length - 1);
+    }
+}
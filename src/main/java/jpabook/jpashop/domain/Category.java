@@ -1,39 +1,106 @@
 package jpabook.jpashop.domain;
 
 import jpabook.jpashop.domain.item.Item;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_category_parent_id", columnList = "parent_id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category")
 @Getter @Setter
 public class Category {
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_seq_generator")
+    @SequenceGenerator(name = "category_seq_generator", sequenceName = "category_seq", allocationSize = 50)
     @Column(name = "category_id")
     private Long id;
 
     private String name;
 
+    // 서브트리 상품 조회는 category_id 로, 상품의 카테고리 조회는 item_id 로 join table 을 읽는다
     @ManyToMany
     @JoinTable(name = "category_item",
         joinColumns = @JoinColumn(name = "category_id"),
-        inverseJoinColumns = @JoinColumn(name = "item_id"))
+        inverseJoinColumns = @JoinColumn(name = "item_id"),
+        indexes = {
+            @Index(name = "idx_category_item_category_item", columnList = "category_id, item_id"),
+            @Index(name = "idx_category_item_item_id", columnList = "item_id")
+        })
     private List<Item> items = new ArrayList<>();
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parent_id")
+    @Setter(AccessLevel.NONE)   // 부모는 addChildCategory 로만 바꾼다 (closure table 과 어긋나지 않도록)
     private Category parent;
 
     @OneToMany(mappedBy = "parent")
     private List<Category> child = new ArrayList<>();
 
+    // 이 카테고리를 자손으로 가지는 closure 행 (자기 자신 depth 0 포함)
+    @OneToMany(mappedBy = "descendant", cascade = CascadeType.PERSIST)
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private List<CategoryClosure> ancestors = new ArrayList<>();
+
     //==연관관계 메서드==//
+    /**
+     * 자식(과 그 아래 서브트리 전체)을 이 카테고리 아래에 붙이고 closure 행을 추가한다.
+     * 이미 부모가 있는 카테고리를 옮기는 것은 지원하지 않는다.
+     */
     public void addChildCategory(Category child) {
+        if (child.getParent() != null) {
+            throw new IllegalStateException("Category already has a parent.");
+        }
+        if (child == this || hasAncestor(child)) {
+            throw new IllegalArgumentException("Category can't be added under its own subtree.");
+        }
         this.child.add(child);
-        child.setParent(this);
+        child.parent = this;
+
+        // (이 카테고리의 조상 + 자기 자신) x (자식 서브트리의 모든 노드)
+        child.linkTo(new ArrayList<>(closureAncestors()), 1);
+    }
+
+    private void linkTo(List<CategoryClosure> upper, int distance) {
+        List<CategoryClosure> mine = closureAncestors();
+        for (CategoryClosure closure : upper) {
+            mine.add(new CategoryClosure(closure.getAncestor(), this, closure.getDepth() + distance));
+        }
+        for (Category c : child) {
+            c.linkTo(upper, distance + 1);
+        }
+    }
+
+    private boolean hasAncestor(Category category) {
+        for (CategoryClosure closure : closureAncestors()) {
+            Category ancestor = closure.getAncestor();
+            if (ancestor == category || (category.getId() != null && category.getId().equals(ancestor.getId()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 새로 만든 카테고리는 자기 자신 행을 처음 필요할 때 만든다
+    private List<CategoryClosure> closureAncestors() {
+        if (ancestors.isEmpty()) {
+            ancestors.add(new CategoryClosure(this, this, 0));
+        }
+        return ancestors;
+    }
+
+    // 부모/자식이 없는 카테고리도 서브트리 조회에 걸리도록 자기 자신 행을 함께 저장한다
+    @PrePersist
+    void prePersist() {
+        closureAncestors();
     }
 
 }
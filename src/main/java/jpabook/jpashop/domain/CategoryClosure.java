@@ -0,0 +1,43 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * 카테고리 트리의 closure table. (조상, 자손) 쌍마다 한 행이며 자기 자신도 depth 0 으로 포함한다.
+ * 서브트리 조회는 ancestor_id 로, 조상 경로 조회는 descendant_id 로 인덱스를 타므로 트리 깊이와 관계없이 쿼리 한 번이다.
+ * 행은 Category.addChildCategory 가 만들고 Category 의 cascade 로 저장된다.
+ */
+@Entity
+@Table(name = "category_closure",
+        uniqueConstraints = @UniqueConstraint(name = "uk_category_closure", columnNames = {"ancestor_id", "descendant_id"}),
+        indexes = @Index(name = "idx_category_closure_descendant", columnList = "descendant_id, depth"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class CategoryClosure {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_closure_seq_generator")
+    @SequenceGenerator(name = "category_closure_seq_generator", sequenceName = "category_closure_seq", allocationSize = 50)
+    @Column(name = "category_closure_id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "ancestor_id")
+    private Category ancestor;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "descendant_id")
+    private Category descendant;
+
+    private int depth;  // ancestor 에서 descendant 까지의 간선 수
+
+    CategoryClosure(Category ancestor, Category descendant, int depth) {
+        this.ancestor = ancestor;
+        this.descendant = descendant;
+        this.depth = depth;
+    }
+}
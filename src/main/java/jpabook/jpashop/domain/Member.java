@@ -4,16 +4,24 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "member")
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_member_name", columnNames = "name"))   // 중복 회원 방지 (이름 검색 인덱스 겸용)
 @Getter @Setter
 public class Member {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+    @SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 50)
     @Column(name = "member_id")
     private Long id;
 
@@ -27,7 +35,7 @@ public class Member {
     @Embedded
     private Address address;
 
-    //@JsonIgnore
+    @JsonIgnore // open-in-view 를 껐으므로 GET /api/v1/members 가 엔티티를 직렬화할 때 트랜잭션 밖에서 지연 로딩하지 않도록
     @OneToMany(mappedBy = "member")
     private List<Order> orders = new ArrayList<>();
 
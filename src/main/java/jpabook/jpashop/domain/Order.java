@@ -1,5 +1,7 @@
 package jpabook.jpashop.domain;
 
+import jpabook.jpashop.domain.item.DirtyCheckingStockKeeper;
+import jpabook.jpashop.domain.item.StockKeeper;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -11,12 +13,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_order_date_id", columnList = "order_date, order_id"), // keyset 페이징용
+        @Index(name = "idx_orders_status_order_date", columnList = "status, order_date"), // 주문 상태 검색
+        @Index(name = "idx_orders_member_id", columnList = "member_id"),
+        @Index(name = "idx_orders_delivery_id", columnList = "delivery_id")
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED) // 기본 생성자를 protected로 설정, 생성을 static함수를 이용해서만 할 수 있도록 제약
 public class Order {
 
-    @Id @GeneratedValue
+    // 시퀀스를 50개 단위로 미리 할당받는다 (pooled-lo). insert 마다 시퀀스 조회가 발생하지 않고 JDBC batch 가 가능하다
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq_generator")
+    @SequenceGenerator(name = "order_seq_generator", sequenceName = "orders_seq", allocationSize = 50)
     @Column(name = "order_id")
     private Long id;
 
@@ -70,13 +80,17 @@ public class Order {
      * 주문 취소
      */
     public void cancel() {
+        cancel(DirtyCheckingStockKeeper.INSTANCE);
+    }
+
+    public void cancel(StockKeeper stockKeeper) {
         if (this.delivery.getStatus() == DeliveryStatus.COMP) {
             throw new IllegalStateException("Already Completed Item can't be cancelled");
         }
 
         this.setStatus(OrderStatus.CANCEL);
         for(OrderItem orderItem : this.orderItems) {
-            orderItem.cancel();
+            orderItem.cancel(stockKeeper);
         }
 
     }
@@ -1,6 +1,8 @@
 package jpabook.jpashop.domain;
 
+import jpabook.jpashop.domain.item.DirtyCheckingStockKeeper;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.StockKeeper;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -9,11 +11,17 @@ import lombok.Setter;
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_order_item_order_id", columnList = "order_id"),
+        @Index(name = "idx_order_item_item_id", columnList = "item_id")
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED) // 기본 생성자를 protected로 설정
 public class OrderItem {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq_generator")
+    @SequenceGenerator(name = "order_item_seq_generator", sequenceName = "order_item_seq", allocationSize = 50)
     @Column(name = "order_item_id")
     private Long id;
 
@@ -31,19 +39,27 @@ public class OrderItem {
     //==생성 메서드==//
     // orderPrice를 따로 두는 이유는 할인등이 있을수 있기 때문
     public static OrderItem createOrderItem(Item item, int orderPrice, int count) {
+        return createOrderItem(item, orderPrice, count, DirtyCheckingStockKeeper.INSTANCE);
+    }
+
+    public static OrderItem createOrderItem(Item item, int orderPrice, int count, StockKeeper stockKeeper) {
         OrderItem orderItem = new OrderItem();
         orderItem.setItem(item);
         orderItem.setOrderPrice(orderPrice);
         orderItem.setCount(count);
 
-        item.removeStock(count);
+        stockKeeper.removeStock(item, count);
         return orderItem;
     }
 
 
     //==비즈니스 로직==//
     public void cancel() {
-        getItem().addStock(count);
+        cancel(DirtyCheckingStockKeeper.INSTANCE);
+    }
+
+    public void cancel(StockKeeper stockKeeper) {
+        stockKeeper.addStock(getItem(), count);
     }
 
     /**
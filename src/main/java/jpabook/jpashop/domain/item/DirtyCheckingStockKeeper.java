@@ -0,0 +1,20 @@
+package jpabook.jpashop.domain.item;
+
+/**
+ * Item 엔티티의 stockQuantity 를 직접 변경하고, 커밋 시 변경감지로 update 한다 (read-modify-write)
+ * 락이 없으므로 동시 주문 시 갱신 손실이 생길 수 있다.
+ */
+public class DirtyCheckingStockKeeper implements StockKeeper {
+
+    public static final DirtyCheckingStockKeeper INSTANCE = new DirtyCheckingStockKeeper();
+
+    @Override
+    public void removeStock(Item item, int quantity) {
+        item.removeStock(quantity);
+    }
+
+    @Override
+    public void addStock(Item item, int quantity) {
+        item.addStock(quantity);
+    }
+}
@@ -0,0 +1,24 @@
+package jpabook.jpashop.domain.item;
+
+/**
+ * 주문/취소 시 재고를 어떤 방식으로 변경할지 결정하는 전략
+ * 기본은 엔티티 변경감지 방식(DirtyCheckingStockKeeper)이며, 서비스 계층에서 설정에 따라 다른 구현을 주입한다.
+ */
+public interface StockKeeper {
+
+    /**
+     * 재고 감소, 재고가 부족하면 NotEnoughStockException
+     */
+    void removeStock(Item item, int quantity);
+
+    /**
+     * 재고 증가
+     */
+    void addStock(Item item, int quantity);
+
+    /**
+     * 상품 수정 등으로 재고 수량이 직접 설정된 경우 호출된다
+     */
+    default void stockOverwritten(Long itemId) {
+    }
+}
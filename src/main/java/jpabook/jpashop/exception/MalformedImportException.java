@@ -0,0 +1,20 @@
+package jpabook.jpashop.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 일괄 가져오기 요청 본문 자체가 잘못되었다 (JSON 배열이 아님, CSV 헤더 없음, 문법 오류 등).
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class MalformedImportException extends RuntimeException {
+
+    public MalformedImportException(String message) {
+        super(message);
+    }
+
+    public MalformedImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
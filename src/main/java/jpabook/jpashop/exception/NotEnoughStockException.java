@@ -1,5 +1,12 @@
 package jpabook.jpashop.exception;
 
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 주문 수량보다 재고가 적다. API 응답은 409 (요청 형식이 아니라 현재 재고 상태와 충돌)
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
 public class NotEnoughStockException extends RuntimeException {
 
     public NotEnoughStockException() {
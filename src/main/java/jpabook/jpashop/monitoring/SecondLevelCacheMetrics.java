@@ -0,0 +1,35 @@
+package jpabook.jpashop.monitoring;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Hibernate 2차 캐시 영역(JCache)별 hit/miss/put/eviction 지표를 cache.* 이름으로 등록한다.
+ * 영역 단위 hit/miss 는 hibernate-micrometer 의 hibernate.second.level.cache.* 로도 나오지만
+ * 크기 제한/TTL 에 의한 eviction 은 캐시 구현체에서만 알 수 있다.
+ */
+@Component
+@RequiredArgsConstructor
+public class SecondLevelCacheMetrics implements MeterBinder {
+
+    // 캐시 영역은 SessionFactory 생성 시 만들어지므로 EntityManagerFactory 가 먼저 초기화되어야 한다
+    private final EntityManagerFactory emf;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // hibernate.javax.cache.uri 를 지정하지 않았으므로 Hibernate 도 provider 의 기본 CacheManager 를 사용한다
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        for (String name : cacheManager.getCacheNames()) {
+            JCacheMetrics.monitor(registry, cacheManager.getCache(name), Tags.of("layer", "hibernate-l2"));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package jpabook.jpashop.monitoring;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * API 응답에 X-Sql-Count 헤더를 추가한다.
+ * 본문을 쓰기 직전까지 실행된 SQL 수이므로, 직렬화 중 지연 로딩된 SQL(엔티티를 그대로 반환하는 v1)은 헤더에 포함되지 않는다.
+ */
+@RestControllerAdvice
+@ConditionalOnProperty(name = "jpashop.sql-metrics.header-enabled", havingValue = "true")
+public class SqlCountHeaderAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String HEADER = "X-Sql-Count";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlRequestStats stats = SqlRequestStats.current();
+        if (stats != null) {
+            response.getHeaders().set(HEADER, String.valueOf(stats.getStatements()));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,75 @@
+package jpabook.jpashop.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청마다 SQL 실행 수, 조회 행 수, JDBC 시간을 모아 엔드포인트(uri 패턴)별 Micrometer 지표로 기록한다.
+ * 같은 모양의 SQL 이 repeatThreshold 번 이상 반복되면 N+1 로 보고 카운터를 올리고 경고 로그를 남긴다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SqlMetricsFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+    private final SqlMetricsProperties properties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlRequestStats stats = SqlRequestStats.start(properties.getMaxShapes());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlRequestStats.clear();
+            record(request, stats);
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlRequestStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of("method", request.getMethod(), "uri", pattern == null ? "UNKNOWN" : pattern.toString());
+
+        DistributionSummary.builder("jpashop.sql.statements")
+                .description("SQL statements per request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        DistributionSummary.builder("jpashop.sql.rows")
+                .description("Rows fetched per request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getRows());
+        Timer.builder("jpashop.sql.time")
+                .description("JDBC execution time per request")
+                .tags(tags)
+                .register(meterRegistry)
+                .record(stats.getJdbcNanos(), TimeUnit.NANOSECONDS);
+
+        if (stats.getMaxRepeats() >= properties.getRepeatThreshold()) {
+            Counter.builder("jpashop.sql.n_plus_one")
+                    .description("Requests that repeated the same SQL shape")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("N+1 suspected on {} {}: {} times [{}]",
+                    request.getMethod(), pattern, stats.getMaxRepeats(), stats.getMostRepeatedSql());
+        }
+    }
+}
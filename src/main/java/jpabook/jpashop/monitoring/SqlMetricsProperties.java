@@ -0,0 +1,17 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "jpashop.sql-metrics")
+@Getter @Setter
+public class SqlMetricsProperties {
+
+    private boolean headerEnabled = false;  // 응답에 X-Sql-Count 헤더 추가
+    private int repeatThreshold = 10;       // 한 요청에서 같은 모양의 SQL 이 이 횟수 이상 실행되면 N+1 로 판단
+    private int maxShapes = 256;            // 요청당 기억하는 SQL 모양 수 상한
+
+}
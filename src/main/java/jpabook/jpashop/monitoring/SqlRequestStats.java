@@ -0,0 +1,81 @@
+package jpabook.jpashop.monitoring;
+
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * HTTP 요청 하나 동안 실행된 SQL 통계
+ * 요청 스레드에서만 사용하므로(ThreadLocal) 동기화하지 않는다.
+ */
+@Getter
+public class SqlRequestStats {
+
+    private static final ThreadLocal<SqlRequestStats> CURRENT = new ThreadLocal<>();
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final int maxShapes;
+    private final Map<String, Integer> shapes = new HashMap<>();
+
+    private long statements;
+    private long rows;
+    private long jdbcNanos;
+    private int maxRepeats;
+    private String mostRepeatedSql;
+
+    public SqlRequestStats(int maxShapes) {
+        this.maxShapes = maxShapes;
+    }
+
+    public static SqlRequestStats start(int maxShapes) {
+        SqlRequestStats stats = new SqlRequestStats(maxShapes);
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static SqlRequestStats current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public void statementExecuted(String sql, long elapsedNanos) {
+        statements++;
+        jdbcNanos += elapsedNanos;
+        if (sql == null) {
+            return;
+        }
+
+        String shape = shapeOf(sql);
+        Integer count = shapes.get(shape);
+        if (count == null) {
+            if (shapes.size() >= maxShapes) {
+                return;
+            }
+            count = 0;
+        }
+        shapes.put(shape, ++count);
+        if (count > maxRepeats) {
+            maxRepeats = count;
+            mostRepeatedSql = shape;
+        }
+    }
+
+    public void rowFetched() {
+        rows++;
+    }
+
+    // 바인딩 값만 다른 SQL 은 같은 모양으로 본다 (리터럴 -> ?)
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+}
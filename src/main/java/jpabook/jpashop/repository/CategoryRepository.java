@@ -0,0 +1,80 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class CategoryRepository {
+
+    // closure table 로 서브트리의 카테고리를 한 번에 찾는다 (ancestor_id 유니크 인덱스 -> category_item(category_id, item_id) 인덱스)
+    // 한 상품이 서브트리의 여러 카테고리에 속할 수 있으므로 join 대신 in 서브쿼리로 중복 없이 조회한다
+    private static final String SUBTREE_ITEMS =
+            " from Item i" +
+            " where i.id in (" +
+            "   select ci.id from CategoryClosure cc" +
+            "   join cc.descendant d" +
+            "   join d.items ci" +
+            "   where cc.ancestor.id = :categoryId)";
+
+    private final EntityManager em;
+
+    public void save(Category category) {
+        em.persist(category);
+    }
+
+    public Category findOne(Long id) {
+        return em.find(Category.class, id);
+    }
+
+    /**
+     * categoryId 와 그 아래 모든 카테고리에 속한 상품을 id 순으로 페이징한다. 트리 깊이와 관계없이 쿼리 한 번 (+ count 한 번)
+     * pageable 의 정렬은 무시한다.
+     */
+    public Page<Item> findItemsInSubtree(Long categoryId, Pageable pageable) {
+        List<Item> content = em.createQuery("select i" + SUBTREE_ITEMS + " order by i.id", Item.class)
+                .setParameter("categoryId", categoryId)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> em.createQuery("select count(i)" + SUBTREE_ITEMS, Long.class)
+                        .setParameter("categoryId", categoryId)
+                        .getSingleResult());
+    }
+
+    /**
+     * categoryId 를 포함한 서브트리의 카테고리를 깊이 순으로 조회한다
+     */
+    public List<Category> findSubtree(Long categoryId) {
+        return em.createQuery(
+                        "select d from CategoryClosure cc" +
+                        " join cc.descendant d" +
+                        " where cc.ancestor.id = :categoryId" +
+                        " order by cc.depth, d.id", Category.class)
+                .setParameter("categoryId", categoryId)
+                .getResultList();
+    }
+
+    /**
+     * 최상위부터 categoryId 까지의 경로 (breadcrumb)
+     */
+    public List<Category> findPath(Long categoryId) {
+        return em.createQuery(
+                        "select a from CategoryClosure cc" +
+                        " join cc.ancestor a" +
+                        " where cc.descendant.id = :categoryId" +
+                        " order by cc.depth desc", Category.class)
+                .setParameter("categoryId", categoryId)
+                .getResultList();
+    }
+}
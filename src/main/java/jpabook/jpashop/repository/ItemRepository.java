@@ -2,15 +2,23 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.item.Item;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.query.NativeQuery;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 @RequiredArgsConstructor
 public class ItemRepository {
 
+    private static final String STOCK_QUERY_SPACE = "item_stock";   // 어떤 엔티티 테이블과도 겹치지 않는 이름
+
     private final EntityManager em;
 
     public void save(Item item) {
@@ -26,8 +34,59 @@ public class ItemRepository {
         return em.find(Item.class, id);
     }
 
+    public List<Item> findAllById(Collection<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    // 조건부 update 한 문장으로 재고를 감소시킨다 (read-modify-write 가 아니므로 갱신 손실/초과 판매가 없다)
+    // 영속성 컨텍스트의 Item 엔티티 값은 갱신되지 않는다. 반환값은 변경된 행 수 (0 이면 재고 부족)
+    public int decreaseStock(Long itemId, int quantity) {
+        return updateStock("update item set stock_quantity = stock_quantity - :quantity" +
+                " where item_id = :itemId and stock_quantity >= :quantity", itemId, quantity);
+    }
+
+    public int increaseStock(Long itemId, int quantity) {
+        return updateStock("update item set stock_quantity = stock_quantity + :quantity" +
+                " where item_id = :itemId", itemId, quantity);
+    }
+
+    /**
+     * JPQL 벌크 update(또는 동기화 대상이 없는 네이티브 update)는 Hibernate 가 item 2차 캐시 영역 전체를 비우고
+     * item 쿼리 캐시까지 무효화하므로, 주문마다 실행되면 상품 캐시가 의미가 없어진다.
+     * 엔티티와 무관한 query space 를 지정해 영역 전체 정리를 막고, 변경한 상품 하나만 갱신 전과 트랜잭션 종료 후에 캐시에서 뺀다.
+     * 재고만 바뀌고 상품 id 목록은 그대로이므로 findAll 의 쿼리 캐시는 무효화하지 않아도 된다.
+     */
+    private int updateStock(String sql, Long itemId, int quantity) {
+        evictAroundUpdate(itemId);
+        return em.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(STOCK_QUERY_SPACE)
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
+
+    // 갱신과 커밋 사이에 다른 트랜잭션이 이전 재고를 캐시에 다시 넣을 수 있으므로 커밋 후에 한 번 더 뺀다
+    private void evictAroundUpdate(Long itemId) {
+        Cache cache = em.getEntityManagerFactory().getCache();
+        cache.evict(Item.class, itemId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(Item.class, itemId);
+                }
+            });
+        }
+    }
+
+    // 쿼리 캐시에는 id 목록만 저장되고 엔티티는 2차 캐시(item 영역)에서 꺼낸다
+    // 상품 저장/수정(엔티티 변경)으로 item 테이블이 변경되면 Hibernate 가 이 결과를 자동으로 무효화한다 (재고 update 는 제외)
     public List<Item> findAll() {
         return em.createQuery("select i from Item i", Item.class)
+                .setHint(QueryHints.CACHEABLE, true)
                 .getResultList();
     }
 }
@@ -0,0 +1,11 @@
+package jpabook.jpashop.repository;
+
+/**
+ * 주문 검색 시 회원 이름 비교 방식
+ */
+public enum MemberNameMatch {
+
+    CONTAINS,   // like '%이름%' : 인덱스를 사용할 수 없어 member 테이블 전체를 읽는다
+    PREFIX      // like '이름%'  : member.name 인덱스 범위 검색
+
+}
@@ -1,8 +1,15 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Member;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 public interface MemberRepository extends JpaRepository<Member, Long> {
@@ -13,5 +20,28 @@ public interface MemberRepository extends JpaRepository<Member, Long> {
     // select m from Member m where m.name = ?
     // 라는 JPQL을 자동으로 생성해준다
     List<Member> findByName(String name); // 이러면 실행됩니다...
-    
+
+    // 엔티티 목록 대신 select m.id ... where m.name = ? limit 1 로 존재 여부만 확인한다
+    boolean existsByName(String name);
+
+    // 주문 화면의 회원 목록은 자주 조회되므로 쿼리 캐시를 사용한다
+    @Override
+    @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"))
+    List<Member> findAll();
+
+    String SUMMARY_SELECT = "select new jpabook.jpashop.repository.MemberSummary("
+            + "m.id, m.name, m.address.city, m.address.street, m.address.zipcode) from Member m";
+
+    // 회원 목록은 엔티티 대신 필요한 컬럼만 DTO 로 조회한다. 전체 건수는 별도의 count 쿼리로 구한다
+    @Query(value = SUMMARY_SELECT, countQuery = "select count(m) from Member m")
+    Page<MemberSummary> findSummaries(Pageable pageable);
+
+    // Slice 는 count 쿼리 없이 size + 1 건을 조회하여 다음 페이지 여부만 판단한다
+    @Query(SUMMARY_SELECT)
+    Slice<MemberSummary> findSummarySlice(Pageable pageable);
+
+    // keyset 페이징 : 마지막으로 본 id 다음부터 PK 인덱스로 읽으므로 페이지 깊이와 무관하다 (pageable 은 크기만 사용)
+    @Query(SUMMARY_SELECT + " where m.id > :afterId order by m.id")
+    List<MemberSummary> findSummariesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
 }
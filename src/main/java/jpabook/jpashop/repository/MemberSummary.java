@@ -0,0 +1,32 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import lombok.Data;
+
+/**
+ * 회원 목록 조회 결과. 엔티티(orders 컬렉션 프록시, 영속성 컨텍스트 관리) 없이 목록에 필요한 컬럼만 조회한다
+ */
+@Data
+public class MemberSummary {
+
+    private Long id;
+    private String name;
+    private Address address;
+
+    public MemberSummary(Long id, String name, String city, String street, String zipcode) {
+        this.id = id;
+        this.name = name;
+        if (city != null || street != null || zipcode != null) {    // 주소 없이 가입한 회원(API)은 null
+            this.address = new Address(city, street, zipcode);
+        }
+    }
+
+    // 이미 영속성 컨텍스트에 있는 회원을 다시 조회하지 않고 변환한다
+    public static MemberSummary from(Member member) {
+        Address address = member.getAddress();
+        return address == null
+                ? new MemberSummary(member.getId(), member.getName(), null, null, null)
+                : new MemberSummary(member.getId(), member.getName(), address.getCity(), address.getStreet(), address.getZipcode());
+    }
+}
@@ -1,26 +1,54 @@
 package jpabook.jpashop.repository;
 
-import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.ConstructorExpression;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.domain.QMember;
 import jpabook.jpashop.domain.QOrder;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
-import javax.persistence.TypedQuery;
-import javax.persistence.criteria.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderRepository {
 
+    private static final QOrder order = QOrder.order;
+    private static final QMember member = QMember.member;
+
+    private static final Param<OrderStatus> STATUS = new Param<>(OrderStatus.class, "status");
+    private static final Param<String> NAME_PATTERN = new Param<>(String.class, "namePattern");
+    private static final int HAS_STATUS = 1;
+    private static final int HAS_NAME = 2;
+
+    private static final ConstructorExpression<OrderSearchDto> SEARCH_DTO = Projections.constructor(OrderSearchDto.class,
+            order.id, member.name, order.orderDate, order.status);
+
+    private static final Map<String, ComparableExpressionBase<?>> SORTABLE = Map.of(
+            "orderId", order.id,
+            "orderDate", order.orderDate,
+            "orderStatus", order.status,
+            "memberName", member.name);
+
     private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final JPAQuery<?>[] searchTemplates = new JPAQuery<?>[4];
 
     public void save(Order order) {
         em.persist(order);
@@ -30,88 +58,6 @@ public class OrderRepository {
         return em.find(Order.class, id);
     }
 
-    // 동적 쿼리 세번째 방법(Querydsl, 간편하고 추천)
-    //public List<Order> findAll(OrderSearch orderSearch) {}
-
-
-    // 동적 쿼리 첫번째 방법(조건부 문자열 조합, 복잡함)
-    public List<Order> findAllByString(OrderSearch orderSearch) {
-//        return em.createQuery("select o from Order o join o.member m"+
-//                    " where o.status = :status" +
-//                    " and m.name like :name", Order.class)
-//                .setParameter("status", orderSearch.getOrderStatus())
-//                .setParameter("name", orderSearch.getMemberName())
-//                .setMaxResults(1000)    // 최대 1000건
-//                .getResultList();
-        // 만약 status와 name이 없다면?(null) 에러 발생!
-
-        String jpql = "select o from orders o join o.member m";
-        boolean isFirstCondition = true;
-        
-        // 주문 상태 검색
-        if (orderSearch.getOrderStatus() != null) {
-            if (isFirstCondition) {
-                jpql += " where";
-                isFirstCondition = false;
-            } else {
-                jpql += " and";
-            }
-            jpql += " o.status = :status";
-        }
-
-        // 회원 이름 검색
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
-            if (isFirstCondition) {
-                jpql += " where";
-                isFirstCondition = false;
-            } else {
-                jpql += " and";
-            }
-            jpql += " m.name like :name";
-        }
-
-        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
-                .setMaxResults(1000);
-
-        if (orderSearch.getOrderStatus() != null) {
-            query = query.setParameter("status", orderSearch.getOrderStatus());
-        }
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
-            query = query.setParameter("name", orderSearch.getMemberName());
-        }
-
-        return query.getResultList();
-
-    }
-    
-    // 동적 쿼리 두번째 방법(JPA Criteria 표준스펙, 역시 복잡함)
-    // 유지보수성이 떨어진다 (쿼리문이 바로 떠오르지 않음)
-    public List<Order> findAllByCriteria(OrderSearch orderSearch) {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Order> cq = cb.createQuery(Order.class);
-        Root<Order> o = cq.from(Order.class);
-        Join<Object, Object> m = o.join("member", JoinType.INNER);
-
-        List<Predicate> criteria = new ArrayList<>();
-
-        // 주문 상태 검색
-        if (orderSearch.getOrderStatus() != null) {
-            Predicate status = cb.equal(o.get("status"), orderSearch.getOrderStatus());
-            criteria.add(status);
-        }
-
-        // 회원 이름 검색
-        if (StringUtils.hasText(orderSearch.getMemberName())) {
-            Predicate name =
-                    cb.like(m.<String>get("name"), "%" + orderSearch.getMemberName() + "%");
-            criteria.add(name);
-        }
-
-        cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
-        TypedQuery<Order> orderTypedQuery = em.createQuery(cq).setMaxResults(1000);
-        return orderTypedQuery.getResultList();
-    }
-
     public List<Order> findAllWithMemberDelivery() {
         // fetch join 기법 (JPA 문법)
         // member와 delivery 엔티티를 즉시 불러옴
@@ -147,34 +93,99 @@ public class OrderRepository {
                 .getResultList();
     }
 
-    //Querydsl 을 이용한 find 함수
-    public List<Order> findAll(OrderSearch orderSearch) {
-        JPAQueryFactory query = new JPAQueryFactory(em);
-        QOrder order = QOrder.order;
-        QMember member = QMember.member;
+    // keyset(seek) 페이징 : offset 만큼 건너뛰지 않고 (orderDate, id) 인덱스를 타고 바로 다음 페이지를 찾는다
+    // 페이지 깊이와 무관하게 일정한 비용이 든다. 컬렉션은 default_batch_fetch_size 로 in 쿼리 조회
+    public List<Order> findAllWithMemberDelivery(OrderCursor cursor, int limit) {
+        if (cursor == null) {
+            return em.createQuery(
+                    "select o from Order o" +
+                            " join fetch o.member m" +
+                            " join fetch o.delivery d" +
+                            " order by o.orderDate, o.id", Order.class)
+                    .setMaxResults(limit)
+                    .getResultList();
+        }
 
-        return query
+        return em.createQuery(
+                "select o from Order o" +
+                        " join fetch o.member m" +
+                        " join fetch o.delivery d" +
+                        " where o.orderDate > :orderDate" +
+                        " or (o.orderDate = :orderDate and o.id > :orderId)" +
+                        " order by o.orderDate, o.id", Order.class)
+                .setParameter("orderDate", cursor.getOrderDate())
+                .setParameter("orderId", cursor.getOrderId())
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * 주문 검색 (OrderController 의 주문 목록). 최대 1000건
+     */
+    public List<Order> findAll(OrderSearch orderSearch) {
+        return searchQuery(orderSearch)
                 .select(order)
-                .from(order)
-                .join(order.member, member)
-                .where(statusEq(orderSearch.getOrderStatus()), nameLike(orderSearch.getMemberName()))
                 .limit(1000)
                 .fetch();
+    }
+
+    /**
+     * 주문 검색 결과를 DTO 로 페이징 조회한다.
+     * 정렬은 SORTABLE 에 등록된 속성만 허용하고, 마지막 페이지처럼 전체 개수를 알 수 있으면 count 쿼리를 생략한다.
+     */
+    public Page<OrderSearchDto> search(OrderSearch orderSearch, Pageable pageable) {
+        List<OrderSearchDto> content = searchQuery(orderSearch)
+                .select(SEARCH_DTO)
+                .orderBy(orderSpecifiers(pageable.getSort()))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
 
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> searchQuery(orderSearch).select(order.count()).fetchOne());
     }
 
-    private BooleanExpression nameLike(String memberName) {
-        if (!StringUtils.hasText(memberName)) {
-            return null;
+    // 검색 조건 조합(주문 상태 유무 x 회원 이름 유무)마다 from/join/where 를 기동 시 한 번만 만들어 둔다.
+    // 값은 Param 으로 바인딩하므로 조합별 JPQL 이 항상 같고, Hibernate 쿼리 플랜 캐시에는 조합당 하나의 플랜만 생긴다.
+    @PostConstruct
+    void buildSearchTemplates() {
+        for (int mask = 0; mask < searchTemplates.length; mask++) {
+            searchTemplates[mask] = queryFactory
+                    .from(order)
+                    .join(order.member, member)
+                    .where((mask & HAS_STATUS) != 0 ? order.status.eq(STATUS) : null,
+                            (mask & HAS_NAME) != 0 ? member.name.like(NAME_PATTERN, OrderSearch.LIKE_ESCAPE) : null);
         }
-        return QMember.member.name.like(memberName);
     }
 
-    private BooleanExpression statusEq(OrderStatus statusCond) {
-        if (statusCond == null) {
-            return null;
+    private JPAQuery<?> searchQuery(OrderSearch orderSearch) {
+        boolean hasStatus = orderSearch.getOrderStatus() != null;
+        boolean hasName = StringUtils.hasText(orderSearch.getMemberName());
+
+        JPAQuery<?> query = searchTemplates[(hasStatus ? HAS_STATUS : 0) | (hasName ? HAS_NAME : 0)].clone();
+        if (hasStatus) {
+            query.set(STATUS, orderSearch.getOrderStatus());
+        }
+        if (hasName) {
+            query.set(NAME_PATTERN, orderSearch.memberNamePattern());
+        }
+        return query;
+    }
+
+    private OrderSpecifier<?>[] orderSpecifiers(Sort sort) {
+        if (sort.isUnsorted()) {
+            return new OrderSpecifier<?>[]{order.id.desc()};
+        }
+
+        List<OrderSpecifier<?>> specifiers = new ArrayList<>();
+        for (Sort.Order sortOrder : sort) {
+            ComparableExpressionBase<?> path = SORTABLE.get(sortOrder.getProperty());
+            if (path == null) {
+                throw new IllegalArgumentException("Unsupported sort property: " + sortOrder.getProperty());
+            }
+            specifiers.add(sortOrder.isAscending() ? path.asc() : path.desc());
         }
-        return QOrder.order.status.eq(statusCond);
+        return specifiers.toArray(new OrderSpecifier<?>[0]);
     }
 
 }
@@ -9,5 +9,19 @@ public class OrderSearch {
 
     private String memberName;  // 회원이름
     private OrderStatus orderStatus;    // 주문 상태 (ORDER, CANCEL)
+    private MemberNameMatch nameMatch = MemberNameMatch.CONTAINS; // 회원이름 비교 방식
+
+    public static final char LIKE_ESCAPE = '\\';
+
+    /**
+     * nameMatch 에 맞는 like 패턴. 이름에 들어있는 %, _ 는 문자 그대로 비교한다
+     */
+    public String memberNamePattern() {
+        String escaped = memberName
+                .replace(String.valueOf(LIKE_ESCAPE), LIKE_ESCAPE + String.valueOf(LIKE_ESCAPE))
+                .replace("%", LIKE_ESCAPE + "%")
+                .replace("_", LIKE_ESCAPE + "_");
+        return nameMatch == MemberNameMatch.PREFIX ? escaped + "%" : "%" + escaped + "%";
+    }
 
 }
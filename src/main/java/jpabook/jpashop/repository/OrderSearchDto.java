@@ -0,0 +1,25 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 주문 검색 결과. 엔티티 대신 화면/API 에 필요한 컬럼만 조회한다
+ */
+@Data
+public class OrderSearchDto {
+
+    private Long orderId;
+    private String memberName;
+    private LocalDateTime orderDate;
+    private OrderStatus orderStatus;
+
+    public OrderSearchDto(Long orderId, String memberName, LocalDateTime orderDate, OrderStatus orderStatus) {
+        this.orderId = orderId;
+        this.memberName = memberName;
+        this.orderDate = orderDate;
+        this.orderStatus = orderStatus;
+    }
+}
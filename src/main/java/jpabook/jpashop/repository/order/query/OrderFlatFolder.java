@@ -0,0 +1,43 @@
+package jpabook.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * order id 순으로 정렬된 OrderFlatDto 행들을 한 번의 순회로 OrderQueryDto 로 접는다.
+ * 인접한 행의 orderId 가 같으면 같은 주문으로 보므로, 입력은 반드시 order id 로 정렬되어 있어야 한다.
+ * groupingBy 와 달리 현재 주문 하나만 메모리에 들고 있고, 입력 순서가 그대로 유지된다.
+ */
+public final class OrderFlatFolder {
+
+    private OrderFlatFolder() {
+    }
+
+    public static void fold(Iterator<OrderFlatDto> rows, Consumer<OrderQueryDto> sink) {
+        OrderQueryDto current = null;
+        while (rows.hasNext()) {
+            OrderFlatDto row = rows.next();
+            if (current == null || !Objects.equals(current.getOrderId(), row.getOrderId())) {
+                if (current != null) {
+                    sink.accept(current);
+                }
+                current = new OrderQueryDto(row.getOrderId(), row.getName(), row.getOrderDate(),
+                        row.getOrderStatus(), row.getAddress(), new ArrayList<>());
+            }
+            current.getOrderItems().add(
+                    new OrderItemQueryDto(row.getOrderId(), row.getItemName(), row.getOrderPrice(), row.getCount()));
+        }
+        if (current != null) {
+            sink.accept(current);
+        }
+    }
+
+    public static List<OrderQueryDto> fold(List<OrderFlatDto> rows) {
+        List<OrderQueryDto> result = new ArrayList<>();
+        fold(rows.iterator(), result::add);
+        return result;
+    }
+}
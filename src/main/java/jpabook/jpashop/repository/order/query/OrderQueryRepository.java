@@ -1,18 +1,32 @@
 package jpabook.jpashop.repository.order.query;
 
+import jpabook.jpashop.repository.support.InClauseBatchLoader;
+import jpabook.jpashop.repository.support.LongObjectMap;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
 @RequiredArgsConstructor
 public class OrderQueryRepository {
 
+    private static final String FLAT_QUERY =
+            "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                    " from Order o" +
+                    " join o.member m" +
+                    " join o.delivery d" +
+                    " join o.orderItems oi" +
+                    " join oi.item i";
+    private static final String FLAT_ORDER_BY = " order by o.id, oi.id";
+
     private final EntityManager em;
+    private final InClauseBatchLoader inClauseBatchLoader;
 
 
     private List<OrderQueryDto> findOrders() {
@@ -51,7 +65,7 @@ public class OrderQueryRepository {
     public List<OrderQueryDto> findAllByDto_optimization() {
         List<OrderQueryDto> result = findOrders();  // 쿼리 1번
 
-        Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(result)); // 쿼리 1번
+        LongObjectMap<List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(toOrderIds(result)); // 쿼리 1번 (chunk 당)
 
         result.forEach(o-> o.setOrderItems(orderItemMap.get(o.getOrderId())));
 
@@ -60,16 +74,40 @@ public class OrderQueryRepository {
 
     // 하나의 쿼리로 모든 값을 다 받아오기때문에 items 갯수만큼 데이터가 뻥튀기된다.
     public List<OrderFlatDto> findAllByDto_flat() {
-        return em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
-                                " from Order o" +
-                                " join o.member m" +
-                                " join o.delivery d" +
-                                " join o.orderItems oi" +
-                                " join oi.item i", OrderFlatDto.class)
+        return em.createQuery(FLAT_QUERY, OrderFlatDto.class)
+                .getResultList();
+    }
+
+    // ordered flat : order id 순으로 정렬하여 OrderFlatFolder 로 인접한 행을 한 번에 접을 수 있게 한다
+    public List<OrderFlatDto> findAllByDto_flatOrdered() {
+        return em.createQuery(FLAT_QUERY + FLAT_ORDER_BY, OrderFlatDto.class)
+                .getResultList();
+    }
+
+    // 행(row)이 아닌 주문 단위로 페이징한다. 주문 id 를 먼저 페이징하고(쿼리 1번) 해당 주문들의 행만 가져온다(쿼리 1번)
+    public List<OrderFlatDto> findAllByDto_flatOrdered(int offset, int limit) {
+        List<Long> orderIds = em.createQuery("select o.id from Order o order by o.id", Long.class)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return em.createQuery(FLAT_QUERY + " where o.id in :orderIds" + FLAT_ORDER_BY, OrderFlatDto.class)
+                .setParameter("orderIds", orderIds)
                 .getResultList();
     }
 
+    // 결과 리스트를 만들지 않고 forward-only 커서(ScrollableResults)로 한 행씩 읽는다
+    // 반드시 트랜잭션 안에서 사용하고, 다 읽은 후 Stream 을 close 해야 커서가 반환된다
+    public Stream<OrderFlatDto> streamAllByDto_flat(int fetchSize) {
+        return em.createQuery(FLAT_QUERY + FLAT_ORDER_BY, OrderFlatDto.class)
+                .setHint(QueryHints.FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.READ_ONLY, true)
+                .getResultStream();
+    }
+
     private List<Long> toOrderIds(List<OrderQueryDto> result) {
         List<Long> orderIds = result.stream()
                 .map(o -> o.getOrderId())
@@ -77,17 +115,16 @@ public class OrderQueryRepository {
         return orderIds;
     }
 
-    private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
-        List<OrderItemQueryDto> orderItems = em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
-                                " from OrderItem oi" +
-                                " join oi.item i" +
-                                " where oi.order.id in :orderIds", OrderItemQueryDto.class) // 쿼리 1번
-                .setParameter("orderId", orderIds)
-                .getResultList();
-
-        Map<Long, List<OrderItemQueryDto>> orderItemMap = orderItems.stream()
-                .collect(Collectors.groupingBy(orderItemQueryDto -> orderItemQueryDto.getOrderId()));
-        return orderItemMap;
+    // orderIds 가 많아도 chunk 단위 in 쿼리로 나누어 조회하므로 쿼리 수는 ceil(주문 수 / chunkSize) 번으로 예측 가능하다
+    private LongObjectMap<List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
+        return inClauseBatchLoader.loadGrouped(orderIds,
+                (entityManager, chunk) -> entityManager.createQuery(
+                                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                                        " from OrderItem oi" +
+                                        " join oi.item i" +
+                                        " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+                        .setParameter("orderIds", chunk)
+                        .getResultList(),
+                OrderItemQueryDto::getOrderId);
     }
 }
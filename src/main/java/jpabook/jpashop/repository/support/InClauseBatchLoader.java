@@ -0,0 +1,145 @@
+package jpabook.jpashop.repository.support;
+
+import jpabook.jpashop.config.datasource.ConcurrencyLimitingDataSource;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * in 쿼리용 id 목록을 chunkSize 단위로 나누어 조회한다.
+ * 마지막 chunk 의 크기는 hibernate.query.in_clause_parameter_padding 설정으로 2의 거듭제곱으로 패딩되므로
+ * id 개수가 달라도 생성되는 SQL 종류(쿼리 플랜 캐시 항목)는 log2(chunkSize) 개 정도로 제한된다.
+ *
+ * parallel 모드에서는 chunk 마다 별도의 읽기 전용 EntityManager 를 열어 제한된 스레드 풀에서 동시에 조회한다.
+ * 별도 커넥션을 사용하므로 현재 트랜잭션에서 아직 커밋하지 않은 변경은 보이지 않는다. (커밋된 데이터 조회 전용)
+ * 동시에 최대 threads 개의 커넥션을 추가로 사용하므로 커넥션 풀 크기는 DB 허가 수 + threads 이상이어야 한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class InClauseBatchLoader {
+
+    private final EntityManager em;
+    private final EntityManagerFactory emf;
+    private final InClauseBatchProperties properties;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        if (properties.isParallel()) {
+            int threads = properties.getThreads();
+            AtomicInteger seq = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(threads * 4),
+                    r -> {
+                        // 호출 스레드가 DB 허가를 가진 채 기다리므로 작업 스레드는 허가 없이 커넥션을 얻는다
+                        Thread t = new Thread(ConcurrencyLimitingDataSource.exempt(r), "in-batch-loader-" + seq.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy()); // 큐가 가득 차면 호출 스레드에서 직접 실행
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * keys 를 중복 제거 후 chunk 로 나누어 query 를 실행하고 결과를 이어붙인다.
+     * query 는 전달받은 EntityManager 로 주어진 chunk 에 대한 in 쿼리를 실행해야 한다.
+     */
+    public <K, R> List<R> load(Collection<K> keys, BiFunction<EntityManager, List<K>, List<R>> query) {
+        List<List<K>> chunks = chunk(keys);
+        List<R> result = new ArrayList<>();
+        if (chunks.isEmpty()) {
+            return result;
+        }
+
+        if (executor == null || chunks.size() == 1) {
+            for (List<K> chunk : chunks) {
+                result.addAll(query.apply(em, chunk));
+            }
+            return result;
+        }
+
+        List<Future<List<R>>> futures = new ArrayList<>(chunks.size());
+        for (List<K> chunk : chunks) {
+            futures.add(executor.submit(() -> queryReadOnly(chunk, query)));
+        }
+        try {
+            for (Future<List<R>> future : futures) {
+                result.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("in batch loading was interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return result;
+    }
+
+    /**
+     * load 결과를 keyOf 로 묶어 long 키 맵으로 반환한다.
+     */
+    public <R> LongObjectMap<List<R>> loadGrouped(Collection<Long> ids,
+                                                  BiFunction<EntityManager, List<Long>, List<R>> query,
+                                                  ToLongFunction<R> keyOf) {
+        List<R> rows = load(ids, query);
+        LongObjectMap<List<R>> grouped = new LongObjectMap<>(ids.size());
+        for (R row : rows) {
+            grouped.computeIfAbsent(keyOf.applyAsLong(row), k -> new ArrayList<>()).add(row);
+        }
+        return grouped;
+    }
+
+    private <K> List<List<K>> chunk(Collection<K> keys) {
+        List<K> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        List<List<K>> chunks = new ArrayList<>((distinct.size() + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            chunks.add(distinct.subList(from, Math.min(from + chunkSize, distinct.size())));
+        }
+        return chunks;
+    }
+
+    private <K, R> List<R> queryReadOnly(List<K> chunk, BiFunction<EntityManager, List<K>, List<R>> query) {
+        EntityManager readEm = emf.createEntityManager();
+        try {
+            Session session = readEm.unwrap(Session.class);
+            session.setDefaultReadOnly(true);   // 스냅샷을 만들지 않는다
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            return query.apply(readEm, chunk);
+        } finally {
+            readEm.close();
+        }
+    }
+}
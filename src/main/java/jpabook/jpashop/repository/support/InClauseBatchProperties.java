@@ -0,0 +1,19 @@
+package jpabook.jpashop.repository.support;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = InClauseBatchProperties.PREFIX)
+@Getter @Setter
+public class InClauseBatchProperties {
+
+    public static final String PREFIX = "jpashop.query.in-batch";
+
+    private int chunkSize = 500;    // in 절 하나에 들어가는 최대 id 수
+    private boolean parallel = false;   // chunk 들을 별도 EntityManager 로 동시에 조회할지 여부
+    private int threads = 4;        // parallel 모드에서 동시에 실행할 chunk 수 (커넥션 풀보다 작게)
+
+}
@@ -2,6 +2,7 @@ package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.StockKeeper;
 import jpabook.jpashop.repository.ItemRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -15,6 +16,7 @@ import java.util.List;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final StockKeeper stockKeeper;
 
 
 
@@ -26,6 +28,7 @@ public class ItemService {
         findItem.setPrice(param.getPrice());
         findItem.setName(param.getName());
         findItem.setStockQuantity(param.getStockQuantity());
+        stockKeeper.stockOverwritten(itemId);
 
         // 함수가 끝나면 Spring의 Transactional annotation에 의해 JPA commit 및 flush가 발생
         // JPA에서 변경된 값을 찾은 후 DB에 전달하여 적용함
@@ -35,6 +38,7 @@ public class ItemService {
     @Transactional  // 없으면 readonly라 저장이 안됨
     public void saveItem(Item item) {
         itemRepository.save(item);
+        stockKeeper.stockOverwritten(item.getId());   // 병합은 재고 수량도 덮어쓴다
     }
     // 병합의 주의점
     // 변경감지는 원하는 값만 교체하지만, 병합은 모든 값을 바꾸며, 값이 없을 시 NULL로 교체할 가능성이 있다.
@@ -0,0 +1,88 @@
+package jpabook.jpashop.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.repository.support.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+
+/**
+ * 회원 이름 Bloom filter. 가입 시 이름이 필터에 없으면 중복 조회 없이 바로 저장한다.
+ * 필터에 있다고 나오면(실제 중복 또는 오탐) select 로 확인한다.
+ *
+ * 필터는 중복 검사를 줄이기 위한 것일 뿐이고, 중복 방지는 member.name 의 unique 제약이 보장한다.
+ * 다른 인스턴스에서 가입한 이름처럼 필터가 모르는 이름도 insert 시 제약 위반으로 걸러진다.
+ * 기동 후 name 컬럼을 모두 읽기(warmUp) 전까지는 모든 이름에 대해 조회한다.
+ */
+@Slf4j
+@Component
+public class MemberNameFilter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MemberNameFilterProperties properties;
+    private final BloomFilter filter;
+    private final Counter skipped;
+    private final Counter queried;
+
+    private volatile boolean ready;
+
+    public MemberNameFilter(JdbcTemplate jdbcTemplate, MemberNameFilterProperties properties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.filter = new BloomFilter(properties.getExpectedNames(), properties.getFalsePositiveRate());
+        this.skipped = Counter.builder("jpashop.member.name_check")
+                .description("Duplicate member name checks")
+                .tag("result", "skipped")
+                .register(meterRegistry);
+        this.queried = Counter.builder("jpashop.member.name_check")
+                .description("Duplicate member name checks")
+                .tag("result", "queried")
+                .register(meterRegistry);
+    }
+
+    /**
+     * false 면 존재하지 않는 이름이 확실하다. true 면 DB 에서 확인해야 한다
+     */
+    public boolean mightExist(String name) {
+        boolean maybe = !ready || filter.mightContain(name);
+        (maybe ? queried : skipped).increment();
+        return maybe;
+    }
+
+    /**
+     * 저장한 이름을 필터에 추가한다. 트랜잭션이 롤백되어도 오탐이 하나 늘어날 뿐이다
+     */
+    public void add(String name) {
+        if (name != null) {
+            filter.add(name);
+        }
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long[] count = {0};
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("select name from member where name is not null");
+            ps.setFetchSize(1_000);    // 회원 수와 무관하게 메모리에 모든 이름을 들고 있지 않는다
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            filter.add(rs.getString(1));
+            count[0]++;
+        });
+        ready = true;
+        log.info("member name filter warmed with {} names in {} ms ({} bits, {} hashes)",
+                count[0], (System.nanoTime() - start) / 1_000_000, filter.getBitCount(), filter.getHashCount());
+    }
+}
@@ -0,0 +1,17 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "jpashop.member-name-filter")
+@Getter @Setter
+public class MemberNameFilterProperties {
+
+    private boolean enabled = true;                 // false 면 가입마다 이름 존재 여부를 조회한다
+    private long expectedNames = 1_000_000;         // 넘으면 오탐률이 올라간다 (재시작 시 다시 만든다)
+    private double falsePositiveRate = 0.01;        // 없는 이름을 있다고 판단하여 조회하게 되는 비율
+
+}
@@ -2,7 +2,13 @@ package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.MemberSummary;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,6 +24,7 @@ public class MemberService {
 
     // Constructor Injection 방식
     private final MemberRepository memberRepository;
+    private final MemberNameFilter memberNameFilter;
 
 //    public MemberService(MemberRepository memberRepository) {     //@Autowired가 없어도 작동한다
 //        this.memberRepository = memberRepository;
@@ -27,33 +34,63 @@ public class MemberService {
     @Transactional  // makes readOnly = false, higher optional priority
     public Long join(Member member) {
         validateDuplicateMember(member);    // 중복 회원 검증
-        memberRepository.save(member);
+        try {
+            memberRepository.saveAndFlush(member);  // 제약 위반을 커밋이 아니라 여기서 확인한다
+        } catch (DataIntegrityViolationException e) {
+            // 검증과 저장 사이에 같은 이름이 먼저 저장된 경우 (uk_member_name)
+            throw new IllegalStateException("Already exist member.", e);
+        }
+        memberNameFilter.add(member.getName());
         return member.getId();
     }
 
-    // validation을 하더라도 거의 동시에 등록한다면 통과될 수도 있음. 따라서 name을 unique로 만드는 것을 추천
+    // 동시에 가입하면 검증을 함께 통과할 수 있으므로 최종적으로는 name 의 unique 제약이 막는다.
+    // 필터에 없는 이름(대부분의 신규 가입)은 조회 쿼리 없이 바로 저장한다.
     private void validateDuplicateMember(Member member) {
-        List<Member> findMembers = memberRepository.findByName(member.getName());
-
-        if(!findMembers.isEmpty()) {
+        String name = member.getName();
+        if (name != null && memberNameFilter.mightExist(name) && memberRepository.existsByName(name)) {
             throw new IllegalStateException("Already exist member.");
         }
     }
-    
+
     //회원 전체 조회
     public List<Member> findMembers() {
         return memberRepository.findAll();
     }
 
+    //회원 목록 조회 (DTO, 페이징)
+    public Page<MemberSummary> findMemberSummaries(Pageable pageable) {
+        return memberRepository.findSummaries(pageable);
+    }
+
+    public Slice<MemberSummary> findMemberSummarySlice(Pageable pageable) {
+        return memberRepository.findSummarySlice(pageable);
+    }
+
+    // afterId 가 null 이면 첫 페이지
+    public List<MemberSummary> findMemberSummariesAfter(Long afterId, int limit) {
+        return memberRepository.findSummariesAfter(afterId == null ? 0L : afterId, PageRequest.of(0, limit));
+    }
+
     public Member findOne(Long memberId) {
         return memberRepository.findById(memberId).get();
     }
 
+    /**
+     * 이름 변경 후 변경된 회원을 반환한다 (응답을 만들기 위해 다시 조회하지 않는다)
+     */
     @Transactional
-    public void update(Long id, String name) {
+    public MemberSummary update(Long id, String name) {
         Member member = memberRepository.findById(id).get();
         member.setName(name);
 
         // 변경감지를 이용한 update
+        try {
+            memberRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("Already exist member.", e);
+        }
+        memberNameFilter.add(name);
+        return MemberSummary.from(member);
     }
 }
@@ -0,0 +1,16 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 주문이 생성되거나 취소되었음을 알린다.
+ * 주문 목록 캐시는 이 이벤트를 트랜잭션 커밋 후에 받아서 무효화한다.
+ */
+@Getter
+@RequiredArgsConstructor
+public class OrderChangedEvent {
+
+    private final Long orderId;
+
+}
@@ -0,0 +1,20 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 주문 요청 하나 (회원, 장바구니). 비동기 주문은 이 단위로 모아서 한 트랜잭션에 저장한다.
+ */
+@Getter
+public class OrderCommand {
+
+    private final Long memberId;
+    private final List<OrderLine> lines;
+
+    public OrderCommand(Long memberId, List<OrderLine> lines) {
+        this.memberId = memberId;
+        this.lines = List.copyOf(lines);
+    }
+}
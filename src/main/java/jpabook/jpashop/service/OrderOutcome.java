@@ -0,0 +1,30 @@
+package jpabook.jpashop.service;
+
+import lombok.Getter;
+
+/**
+ * 주문 요청 하나의 결과. 성공하면 orderId, 실패하면 error 를 가진다.
+ */
+@Getter
+public class OrderOutcome {
+
+    private final Long orderId;
+    private final String error;
+
+    private OrderOutcome(Long orderId, String error) {
+        this.orderId = orderId;
+        this.error = error;
+    }
+
+    public static OrderOutcome success(Long orderId) {
+        return new OrderOutcome(orderId, null);
+    }
+
+    public static OrderOutcome failure(String error) {
+        return new OrderOutcome(null, error);
+    }
+
+    public boolean isSuccess() {
+        return orderId != null;
+    }
+}
@@ -5,15 +5,30 @@ import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.StockKeeper;
+import jpabook.jpashop.exception.NotEnoughStockException;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.OrderSearchDto;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
@@ -23,6 +38,8 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final StockKeeper stockKeeper;  // jpashop.stock.mode 에 따라 재고 변경 방식이 정해진다
+    private final ApplicationEventPublisher eventPublisher;   // 커밋 후 주문 목록 캐시 무효화
 
     /**
      * 주문
@@ -31,25 +48,166 @@ public class OrderService {
     public Long order(Long memberId, Long itemId, int count) {
 
         //엔티티 조회
-        Member member = memberRepository.findById(memberId).get();
+        Member member = findMember(memberId);
         Item item = itemRepository.findOne(itemId);
+        if (item == null) {
+            throw new IllegalArgumentException(itemNotFound(itemId));
+        }
 
         //배송정보 생성
         Delivery delivery = new Delivery();
         delivery.setAddress(member.getAddress());
 
         //주문상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
+        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count, stockKeeper);
 
         //주문 생성
         Order order = Order.createOrder(member, delivery, orderItem);   // 도메인 모델 패턴
 
         //주문 저장
         orderRepository.save(order);    // Cascade에 대하여 주의해야함.
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId()));
         return order.getId();           // 만약 delivery와 orderItem이 order외의 다른곳에서도 많이 사용된다면, cascade는 지양해야한다.
 
     }
 
+    /**
+     * 장바구니 주문 (여러 상품을 하나의 주문으로)
+     * 상품은 in 쿼리 한 번으로 조회하고, 주문/주문상품/배송 insert 는 JDBC batch 로 나간다.
+     */
+    @Transactional
+    public Long order(Long memberId, List<OrderLine> lines) {
+        Map<Long, Integer> counts = countsByItem(lines);
+
+        //엔티티 조회
+        Member member = findMember(memberId);
+        Map<Long, Item> items = findItems(counts.keySet());
+
+        Order order = createOrder(member, counts, items);
+        orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderChangedEvent(order.getId()));
+        return order.getId();
+    }
+
+    /**
+     * 여러 회원의 주문을 한 트랜잭션에서 저장한다 (비동기 주문의 micro-batch)
+     * 회원/상품은 배치 전체에 대해 in 쿼리로 한 번씩 조회하고, 커밋은 배치당 한 번이다.
+     *
+     * 회원/상품이 없거나 수량이 잘못된 요청, 재고가 부족한 요청은 실패 결과만 남기고 건너뛴다.
+     * 재고 부족은 그 주문에서 이미 감소한 재고를 되돌린 후 다음 요청으로 넘어가므로 배치가 롤백되지 않는다.
+     * 그 밖의 예외는 배치 전체를 롤백한다. 호출자는 요청을 한 건씩 다시 실행한다.
+     *
+     * @return commands 와 같은 순서의 결과
+     */
+    @Transactional
+    public List<OrderOutcome> orderAll(List<OrderCommand> commands) {
+        Set<Long> memberIds = new HashSet<>();
+        Set<Long> itemIds = new HashSet<>();
+        for (OrderCommand command : commands) {
+            memberIds.add(command.getMemberId());
+            command.getLines().forEach(line -> itemIds.add(line.getItemId()));
+        }
+
+        //엔티티 조회
+        Map<Long, Member> members = memberRepository.findAllById(memberIds).stream()
+                .collect(Collectors.toMap(Member::getId, Function.identity()));
+        Map<Long, Item> items = findItems(itemIds);
+
+        List<OrderOutcome> outcomes = new ArrayList<>(commands.size());
+        for (OrderCommand command : commands) {
+            Member member = members.get(command.getMemberId());
+            if (member == null) {
+                outcomes.add(OrderOutcome.failure(memberNotFound(command.getMemberId())));
+                continue;
+            }
+            Map<Long, Integer> counts;
+            try {
+                counts = countsByItem(command.getLines());
+            } catch (IllegalArgumentException e) {
+                outcomes.add(OrderOutcome.failure(e.getMessage()));
+                continue;
+            }
+            Long missingItemId = counts.keySet().stream().filter(id -> !items.containsKey(id)).findFirst().orElse(null);
+            if (missingItemId != null) {
+                outcomes.add(OrderOutcome.failure(itemNotFound(missingItemId)));
+                continue;
+            }
+
+            Order order;
+            try {
+                order = createOrder(member, counts, items);
+            } catch (NotEnoughStockException e) {
+                outcomes.add(OrderOutcome.failure(e.getMessage()));
+                continue;
+            }
+            orderRepository.save(order);
+            eventPublisher.publishEvent(new OrderChangedEvent(order.getId()));
+            outcomes.add(OrderOutcome.success(order.getId()));
+        }
+        return outcomes;
+    }
+
+    // 같은 상품이 여러 줄이면 합치고, 상품 id 순으로 재고를 변경하여 동시 주문 간 락 순서를 맞춘다
+    private Map<Long, Integer> countsByItem(List<OrderLine> lines) {
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException("Order must have at least one item");
+        }
+        Map<Long, Integer> counts = new TreeMap<>();
+        for (OrderLine line : lines) {
+            if (line.getCount() <= 0) {
+                throw new IllegalArgumentException("Order count must be positive: " + line.getItemId());
+            }
+            counts.merge(line.getItemId(), line.getCount(), Integer::sum);
+        }
+        return counts;
+    }
+
+    private Map<Long, Item> findItems(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+    }
+
+    private Member findMember(Long memberId) {
+        return memberRepository.findById(memberId)
+                .orElseThrow(() -> new IllegalArgumentException(memberNotFound(memberId)));
+    }
+
+    private static String memberNotFound(Long memberId) {
+        return "Member not found: " + memberId;
+    }
+
+    private static String itemNotFound(Long itemId) {
+        return "Item not found: " + itemId;
+    }
+
+    // 재고가 부족하면 이 주문에서 이미 감소한 재고를 되돌리고 NotEnoughStockException 을 던진다 (트랜잭션은 계속 쓸 수 있다)
+    private Order createOrder(Member member, Map<Long, Integer> counts, Map<Long, Item> items) {
+        //주문상품 생성
+        List<OrderItem> orderItems = new ArrayList<>(counts.size());
+        try {
+            counts.forEach((itemId, count) -> {
+                Item item = items.get(itemId);
+                if (item == null) {
+                    throw new IllegalArgumentException(itemNotFound(itemId));
+                }
+                orderItems.add(OrderItem.createOrderItem(item, item.getPrice(), count, stockKeeper));
+            });
+        } catch (NotEnoughStockException e) {
+            orderItems.forEach(orderItem -> orderItem.cancel(stockKeeper));
+            throw e;
+        }
+
+        //배송정보 생성
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        //주문 생성
+        return Order.createOrder(member, delivery, orderItems.toArray(new OrderItem[0]));
+    }
+
     /**
      * 주문 취소
      */
@@ -58,12 +216,13 @@ public class OrderService {
         //주문 엔티티 조회
         Order order = orderRepository.findOne(orderId);
         //주문 취소
-        order.cancel();
+        order.cancel(stockKeeper);
+        eventPublisher.publishEvent(new OrderChangedEvent(orderId));
     }
 
-    //검색
-    public List<Order> findOrders(OrderSearch orderSearch) {
-        return orderRepository.findAllByCriteria(orderSearch);
+    //검색 (엔티티 목록 조회는 OrderQueryService)
+    public Page<OrderSearchDto> searchOrders(OrderSearch orderSearch, Pageable pageable) {
+        return orderRepository.search(orderSearch, pageable);
     }
 
 }
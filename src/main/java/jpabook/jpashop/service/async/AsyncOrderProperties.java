@@ -0,0 +1,21 @@
+package jpabook.jpashop.service.async;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "jpashop.async-order")
+@Getter @Setter
+public class AsyncOrderProperties {
+
+    private int queueCapacity = 10_000;                     // 가득 차면 접수를 거절한다 (503)
+    private int maxBatchSize = 500;                         // 한 트랜잭션에 저장하는 최대 주문 수
+    private Duration maxBatchDelay = Duration.ofMillis(5);  // 첫 주문 이후 배치를 채우기 위해 기다리는 최대 시간
+    private Duration ticketRetention = Duration.ofMinutes(10);  // 처리 결과를 조회할 수 있는 시간
+    private long maxTickets = 100_000;
+
+}
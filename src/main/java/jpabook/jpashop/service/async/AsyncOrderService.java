@@ -0,0 +1,201 @@
+package jpabook.jpashop.service.async;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jpabook.jpashop.exception.OrderQueueFullException;
+import jpabook.jpashop.service.OrderCommand;
+import jpabook.jpashop.service.OrderLine;
+import jpabook.jpashop.service.OrderOutcome;
+import jpabook.jpashop.service.OrderService;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 비동기 주문 : 주문 요청을 제한된 대기열에 넣고 접수 번호(ticket)를 바로 반환한다.
+ *
+ * 작업 스레드 하나가 대기열에서 최대 maxBatchSize 건 또는 첫 요청 이후 maxBatchDelay 동안 모인 요청을
+ * OrderService.orderAll 로 한 트랜잭션에 저장한다. 주문마다 커밋하던 비용(커밋/로그 flush 대기)이 배치당 한 번으로 줄고
+ * 회원/상품 조회는 in 쿼리, insert 는 JDBC batch 로 나간다.
+ * 재고 부족, 없는 회원/상품은 요청별 실패로 남고 배치는 그대로 커밋된다.
+ * 그 밖의 예외로 배치가 롤백되면 그 배치의 요청을 한 건씩 각자의 트랜잭션으로 다시 실행하여 요청별 결과를 얻는다.
+ *
+ * 처리 결과는 ticketRetention 동안 메모리에 보관한다 (인스턴스 재시작 시 대기열/결과는 사라진다)
+ */
+@Slf4j
+@Service
+public class AsyncOrderService {
+
+    private static final long IDLE_POLL_MS = 100;   // 종료 요청을 확인하는 주기
+
+    private final OrderService orderService;
+    private final AsyncOrderProperties properties;
+    private final BlockingQueue<PendingOrder> queue;
+    private final Cache<String, OrderTicket> tickets;
+    private final DistributionSummary batchSizes;
+    private final Timer batchTimer;
+
+    private Thread worker;
+    private volatile boolean running;
+
+    public AsyncOrderService(OrderService orderService, AsyncOrderProperties properties, MeterRegistry meterRegistry) {
+        this.orderService = orderService;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.tickets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxTickets())
+                .expireAfterWrite(properties.getTicketRetention())
+                .build();
+
+        Gauge.builder("jpashop.order.async.queue", queue, BlockingQueue::size)
+                .description("Orders waiting to be written")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("jpashop.order.async.batch.size")
+                .description("Orders written per transaction")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("jpashop.order.async.batch.time")
+                .description("Time to write one batch, including individual replay")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 주문 요청을 대기열에 넣고 접수 번호를 반환한다. 대기열이 가득 차면 OrderQueueFullException
+     */
+    public String submit(Long memberId, List<OrderLine> lines) {
+        String ticket = UUID.randomUUID().toString();
+        tickets.put(ticket, OrderTicket.pending(ticket));
+        PendingOrder pending = new PendingOrder(ticket, new OrderCommand(memberId, lines));
+        if (!running || !queue.offer(pending)) {
+            tickets.invalidate(ticket);
+            throw new OrderQueueFullException("Order queue is full, try again later");
+        }
+        // offer 직전에 stop() 되어 작업 스레드가 이미 대기열을 비우고 종료했을 수 있다.
+        // 대기열에서 다시 꺼낼 수 있으면 아무도 처리하지 않는 요청이므로 거절한다 (꺼내지 못했다면 작업 스레드가 가져가 저장한다)
+        if (!running && queue.remove(pending)) {
+            tickets.invalidate(ticket);
+            throw new OrderQueueFullException("Order service is shutting down");
+        }
+        return ticket;
+    }
+
+    public Optional<OrderTicket> findTicket(String ticket) {
+        return Optional.ofNullable(tickets.getIfPresent(ticket));
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::run, "async-order-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 접수를 멈추고 대기열에 남은 주문을 모두 저장한 후 종료한다
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.join();
+    }
+
+    private void run() {
+        List<PendingOrder> batch = new ArrayList<>(properties.getMaxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                running = false;    // 이미 꺼낸 요청은 저장하고, 남은 요청도 처리한 후 종료한다
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        log.info("async order writer stopped");
+    }
+
+    // 첫 요청을 기다린 후, 배치가 가득 차거나 maxBatchDelay 가 지날 때까지 더 모은다
+    private void collect(List<PendingOrder> batch) throws InterruptedException {
+        PendingOrder first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        int maxBatchSize = properties.getMaxBatchSize();
+        long deadline = System.nanoTime() + properties.getMaxBatchDelay().toNanos();
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                return;
+            }
+            PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<PendingOrder> batch) {
+        long start = System.nanoTime();
+        List<OrderCommand> commands = batch.stream().map(PendingOrder::getCommand).collect(toList());
+
+        List<OrderOutcome> outcomes;
+        try {
+            outcomes = orderService.orderAll(commands);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                outcomes = List.of(OrderOutcome.failure(errorMessage(e)));
+            } else {
+                log.debug("order batch of {} rolled back, replaying one by one: {}", batch.size(), e.toString());
+                outcomes = commands.stream().map(this::orderOne).collect(toList());
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            String ticket = batch.get(i).getTicket();
+            tickets.put(ticket, OrderTicket.of(ticket, outcomes.get(i)));
+        }
+        batchSizes.record(batch.size());
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private OrderOutcome orderOne(OrderCommand command) {
+        try {
+            return OrderOutcome.success(orderService.order(command.getMemberId(), command.getLines()));
+        } catch (RuntimeException e) {
+            return OrderOutcome.failure(errorMessage(e));
+        }
+    }
+
+    private String errorMessage(RuntimeException e) {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class PendingOrder {
+        private final String ticket;
+        private final OrderCommand command;
+    }
+}
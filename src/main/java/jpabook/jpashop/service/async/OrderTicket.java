@@ -0,0 +1,37 @@
+package jpabook.jpashop.service.async;
+
+import jpabook.jpashop.service.OrderOutcome;
+import lombok.Getter;
+
+/**
+ * 비동기 주문 접수 번호와 처리 상태
+ */
+@Getter
+public class OrderTicket {
+
+    public enum Status {
+        PENDING, COMPLETED, FAILED
+    }
+
+    private final String ticket;
+    private final Status status;
+    private final Long orderId;     // COMPLETED
+    private final String error;     // FAILED
+
+    private OrderTicket(String ticket, Status status, Long orderId, String error) {
+        this.ticket = ticket;
+        this.status = status;
+        this.orderId = orderId;
+        this.error = error;
+    }
+
+    static OrderTicket pending(String ticket) {
+        return new OrderTicket(ticket, Status.PENDING, null, null);
+    }
+
+    static OrderTicket of(String ticket, OrderOutcome outcome) {
+        return outcome.isSuccess()
+                ? new OrderTicket(ticket, Status.COMPLETED, outcome.getOrderId(), null)
+                : new OrderTicket(ticket, Status.FAILED, null, outcome.getError());
+    }
+}
@@ -0,0 +1,49 @@
+package jpabook.jpashop.service.bulk;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 회원 일괄 수정 결과. 실패한 건은 요청 안의 순서(1부터)와 id, 원인을 담는다
+ */
+@Getter
+public class MemberBulkUpdateResult {
+
+    private long requested;
+    private long updated;
+    private long failed;
+    private long elapsedMillis;
+    private final List<Failure> failures = new ArrayList<>();
+
+    void requested(long count) {
+        requested = count;
+    }
+
+    void updated(long count) {
+        updated += count;
+    }
+
+    void failed(int index, Long id, String reason) {
+        failed++;
+        failures.add(new Failure(index, id, reason));
+    }
+
+    void finish(long startNanos) {
+        elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @Getter
+    public static class Failure {
+        private final int index;
+        private final Long id;
+        private final String reason;
+
+        Failure(int index, Long id, String reason) {
+            this.index = index;
+            this.id = id;
+            this.reason = reason;
+        }
+    }
+}
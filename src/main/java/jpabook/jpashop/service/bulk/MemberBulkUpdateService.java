@@ -0,0 +1,194 @@
+package jpabook.jpashop.service.bulk;
+
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.MemberNameFilter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 회원 일괄 부분 수정. 엔티티를 조회하지 않고 updateChunkSize 건씩 한 트랜잭션에서 JDBC batch update 로 반영한다.
+ * 모든 건이 같은 SQL 모양(coalesce 로 null 인 항목은 기존 값 유지)이므로 한 batch 로 묶인다.
+ *
+ * chunk 에서 이름 unique 제약 위반이 나면 그 chunk 는 롤백하고 한 건씩 다시 실행하여 실패한 건만 골라낸다.
+ * JDBC 로 직접 갱신하므로 갱신 전과 트랜잭션 종료 후에 member 2차 캐시에서 수정 대상 회원을 제거한다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MemberBulkUpdateService {
+
+    private static final String UPDATE_SQL = "update member set name = coalesce(?, name), city = coalesce(?, city),"
+            + " street = coalesce(?, street), zipcode = coalesce(?, zipcode) where member_id = ?";
+    private static final int MAX_COLUMN_LENGTH = 255;     // member 의 문자열 컬럼은 모두 varchar(255)
+    private static final String NAME_CONSTRAINT = "uk_member_name";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManagerFactory emf;
+    private final MemberNameFilter memberNameFilter;
+    private final MemberImportProperties properties;
+
+    public MemberBulkUpdateResult update(List<MemberPatch> patches) {
+        long start = System.nanoTime();
+        MemberBulkUpdateResult result = new MemberBulkUpdateResult();
+        result.requested(patches.size());
+
+        Set<Long> seenIds = new HashSet<>();
+        List<IndexedPatch> chunk = new ArrayList<>(properties.getUpdateChunkSize());
+        for (int i = 0; i < patches.size(); i++) {
+            MemberPatch patch = patches.get(i);
+            String error = validate(patch, seenIds);
+            if (error != null) {
+                result.failed(i + 1, patch.getId(), error);
+                continue;
+            }
+            chunk.add(new IndexedPatch(i + 1, patch));
+            if (chunk.size() == properties.getUpdateChunkSize()) {
+                writeChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, result);
+        }
+
+        result.finish(start);
+        return result;
+    }
+
+    private String validate(MemberPatch patch, Set<Long> seenIds) {
+        if (patch.getId() == null) {
+            return "Id is required";
+        }
+        if (!seenIds.add(patch.getId())) {
+            return "Duplicate id in request";
+        }
+        String name = patch.getName();
+        if (name != null && name.isBlank()) {
+            return "Name is empty";
+        }
+        // DB 에서 길이 초과로 실패하면 chunk 전체가 다시 실행되므로 모든 항목을 미리 확인한다
+        if (tooLong(name)) {
+            return "Name is longer than " + MAX_COLUMN_LENGTH;
+        }
+        if (tooLong(patch.getCity())) {
+            return "City is longer than " + MAX_COLUMN_LENGTH;
+        }
+        if (tooLong(patch.getStreet())) {
+            return "Street is longer than " + MAX_COLUMN_LENGTH;
+        }
+        if (tooLong(patch.getZipcode())) {
+            return "Zipcode is longer than " + MAX_COLUMN_LENGTH;
+        }
+        return null;
+    }
+
+    private boolean tooLong(String value) {
+        return value != null && value.length() > MAX_COLUMN_LENGTH;
+    }
+
+    private void writeChunk(List<IndexedPatch> chunk, MemberBulkUpdateResult result) {
+        int[][] counts;
+        try {
+            counts = new TransactionTemplate(transactionManager).execute(status -> {
+                evictAroundUpdate(chunk);
+                return jdbcTemplate.batchUpdate(UPDATE_SQL, chunk, chunk.size(), (ps, indexed) -> {
+                    MemberPatch patch = indexed.patch;
+                    ps.setString(1, patch.getName());
+                    ps.setString(2, patch.getCity());
+                    ps.setString(3, patch.getStreet());
+                    ps.setString(4, patch.getZipcode());
+                    ps.setLong(5, patch.getId());
+                });
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.debug("member update chunk rolled back, retrying one by one: {}", e.toString());
+            chunk.forEach(indexed -> writeOne(indexed, result));
+            return;
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            IndexedPatch indexed = chunk.get(i);
+            // 드라이버가 건별 결과를 주지 않으면 SUCCESS_NO_INFO(-2)
+            if (counts[0][i] == 0) {
+                result.failed(indexed.index, indexed.patch.getId(), "Member not found");
+            } else {
+                updated(indexed.patch, result);
+            }
+        }
+    }
+
+    private void writeOne(IndexedPatch indexed, MemberBulkUpdateResult result) {
+        MemberPatch patch = indexed.patch;
+        try {
+            Integer count = new TransactionTemplate(transactionManager).execute(status -> {
+                evictAroundUpdate(List.of(indexed));
+                return jdbcTemplate.update(UPDATE_SQL, patch.getName(), patch.getCity(), patch.getStreet(), patch.getZipcode(), patch.getId());
+            });
+            if (count == null || count == 0) {
+                result.failed(indexed.index, patch.getId(), "Member not found");
+            } else {
+                updated(patch, result);
+            }
+        } catch (DataIntegrityViolationException e) {
+            if (isNameConflict(e)) {
+                result.failed(indexed.index, patch.getId(), "Already exist member.");
+            } else {
+                log.warn("member update rejected: id={}, {}", patch.getId(), e.getMostSpecificCause().toString());
+                result.failed(indexed.index, patch.getId(), "Rejected by database");
+            }
+        }
+    }
+
+    // 이름 unique 제약 위반만 중복 회원으로 본다 (H2 는 제약 이름을 대문자로 메시지에 넣는다)
+    private boolean isNameConflict(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase().contains(NAME_CONSTRAINT);
+    }
+
+    /**
+     * 갱신 전에 캐시에서 빼고, 트랜잭션이 끝난 뒤 한 번 더 뺀다.
+     * 갱신과 커밋 사이에 다른 요청이 이전 값을 읽어 캐시에 다시 넣을 수 있기 때문이다.
+     */
+    private void evictAroundUpdate(List<IndexedPatch> patches) {
+        evict(patches);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                evict(patches);
+            }
+        });
+    }
+
+    private void evict(List<IndexedPatch> patches) {
+        for (IndexedPatch indexed : patches) {
+            emf.getCache().evict(Member.class, indexed.patch.getId());
+        }
+    }
+
+    private void updated(MemberPatch patch, MemberBulkUpdateResult result) {
+        if (patch.getName() != null) {
+            memberNameFilter.add(patch.getName());
+        }
+        result.updated(1);
+    }
+
+    @RequiredArgsConstructor
+    private static class IndexedPatch {
+        private final int index;    // 요청 안의 순서 (1부터)
+        private final MemberPatch patch;
+    }
+}
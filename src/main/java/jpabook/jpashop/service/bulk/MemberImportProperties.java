@@ -0,0 +1,20 @@
+package jpabook.jpashop.service.bulk;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 회원 대량 가져오기(POST /api/v2/members/bulk)와 일괄 수정(PATCH /api/v2/members) 설정
+ */
+@Component
+@ConfigurationProperties(prefix = "jpashop.member-import")
+@Getter @Setter
+public class MemberImportProperties {
+
+    private int chunkSize = 1_000;          // 한 트랜잭션에서 저장하는 회원 수 (insert 는 hibernate.jdbc.batch_size 단위로 전송)
+    private int maxReportedFailures = 1_000; // 응답에 담는 실패 행 수 상한 (실패 건수는 모두 센다)
+    private int updateChunkSize = 500;      // 일괄 수정(PATCH /api/v2/members)에서 한 트랜잭션의 JDBC batch update 수
+
+}
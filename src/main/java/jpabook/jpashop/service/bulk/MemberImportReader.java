@@ -0,0 +1,209 @@
+package jpabook.jpashop.service.bulk;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.exception.MalformedImportException;
+import lombok.Data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * 요청 본문을 한 행씩 읽는다. 본문 전체를 메모리에 올리지 않는다.
+ * 본문 자체가 깨진 경우(JSON 문법 오류, CSV 헤더 없음)는 MalformedImportException(400)을, 읽기 실패는 UncheckedIOException 을,
+ * 행 하나의 형식 오류는 error 를 가진 행을 반환한다.
+ */
+public final class MemberImportReader {
+
+    private static final String[] CSV_COLUMNS = {"name", "city", "street", "zipcode"};
+
+    private MemberImportReader() {
+    }
+
+    /**
+     * [{"name": "...", "city": "...", "street": "...", "zipcode": "..."}, ...]
+     */
+    public static Iterator<MemberImportRow> json(InputStream in, ObjectMapper objectMapper) throws IOException {
+        JsonParser parser = objectMapper.createParser(in);
+        JsonToken first;
+        try {
+            first = parser.nextToken();
+        } catch (JsonProcessingException e) {
+            throw new MalformedImportException("Malformed JSON: " + e.getOriginalMessage(), e);
+        }
+        if (first != JsonToken.START_ARRAY) {
+            throw new MalformedImportException("Expected a JSON array of members");
+        }
+        return new RowIterator() {
+            @Override
+            protected MemberImportRow readRow(long rowNumber) throws IOException {
+                try {
+                    JsonToken token = parser.nextToken();
+                    if (token == null || token == JsonToken.END_ARRAY) {
+                        return null;
+                    }
+                    if (token != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        return MemberImportRow.invalid(rowNumber, "Expected a JSON object");
+                    }
+                    JsonRow row = parser.readValueAs(JsonRow.class);
+                    return new MemberImportRow(rowNumber, row.getName(), row.getCity(), row.getStreet(), row.getZipcode());
+                } catch (JsonProcessingException e) {
+                    throw new MalformedImportException("Malformed JSON at row " + rowNumber + ": " + e.getOriginalMessage(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 첫 줄은 헤더(name,city,street,zipcode 중 name 은 필수, 순서 무관). 값에 쉼표나 따옴표가 있으면 "" 로 감싼다
+     */
+    public static Iterator<MemberImportRow> csv(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            throw new MalformedImportException("CSV header is missing");
+        }
+        if (!header.isEmpty() && header.charAt(0) == '\uFEFF') {
+            header = header.substring(1);   // UTF-8 BOM
+        }
+        int[] columnIndex = columnIndex(parseCsvLine(header));
+
+        return new RowIterator() {
+            @Override
+            protected MemberImportRow readRow(long rowNumber) throws IOException {
+                String line;
+                do {
+                    line = reader.readLine();
+                    if (line == null) {
+                        return null;
+                    }
+                } while (line.isBlank());
+
+                List<String> values = parseCsvLine(line);
+                if (values == null) {
+                    return MemberImportRow.invalid(rowNumber, "Unterminated quoted value");
+                }
+                return new MemberImportRow(rowNumber,
+                        value(values, columnIndex[0]), value(values, columnIndex[1]),
+                        value(values, columnIndex[2]), value(values, columnIndex[3]));
+            }
+        };
+    }
+
+    private static int[] columnIndex(List<String> header) {
+        if (header == null) {
+            throw new MalformedImportException("Malformed CSV header");
+        }
+        List<String> names = new ArrayList<>(header.size());
+        header.forEach(h -> names.add(h.trim().toLowerCase(Locale.ROOT)));
+        int[] index = new int[CSV_COLUMNS.length];
+        for (int c = 0; c < CSV_COLUMNS.length; c++) {
+            index[c] = names.indexOf(CSV_COLUMNS[c]);
+        }
+        if (index[0] < 0) {
+            throw new MalformedImportException("CSV header must contain a name column");
+        }
+        return index;
+    }
+
+    private static String value(List<String> values, int index) {
+        if (index < 0 || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // RFC 4180 의 한 줄 (따옴표 안의 줄바꿈은 지원하지 않는다). 따옴표가 닫히지 않으면 null
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(ch);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    /**
+     * 한 행을 미리 읽어 두는 Iterator. 읽기 중 IOException 은 UncheckedIOException 으로 던진다
+     */
+    private abstract static class RowIterator implements Iterator<MemberImportRow> {
+
+        private long rowNumber;
+        private MemberImportRow next;
+        private boolean done;
+
+        protected abstract MemberImportRow readRow(long rowNumber) throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                try {
+                    next = readRow(rowNumber + 1);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (next == null) {
+                    done = true;
+                } else {
+                    rowNumber++;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public MemberImportRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            MemberImportRow row = next;
+            next = null;
+            return row;
+        }
+    }
+
+    @Data
+    static class JsonRow {
+        private String name;
+        private String city;
+        private String street;
+        private String zipcode;
+    }
+}
@@ -0,0 +1,71 @@
+package jpabook.jpashop.service.bulk;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 회원 가져오기 결과. 실패한 행은 maxReportedFailures 개까지만 담는다
+ */
+@Getter
+public class MemberImportResult {
+
+    private long total;
+    private long imported;
+    private long failed;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+    private String abortedBy;   // 입력을 끝까지 읽지 못한 경우 원인 (그 전까지 저장한 회원은 유지된다)
+    private final List<RowFailure> failures = new ArrayList<>();
+
+    @Getter(AccessLevel.NONE)
+    private final int maxReportedFailures;
+
+    MemberImportResult(int maxReportedFailures) {
+        this.maxReportedFailures = maxReportedFailures;
+    }
+
+    void read() {
+        total++;
+    }
+
+    void imported(long count) {
+        imported += count;
+    }
+
+    void failed(MemberImportRow row, String reason) {
+        failed++;
+        if (failures.size() < maxReportedFailures) {
+            failures.add(new RowFailure(row.getRowNumber(), row.getName(), reason));
+        }
+    }
+
+    void abort(String reason) {
+        abortedBy = reason;
+    }
+
+    void finish(long startNanos) {
+        long elapsed = Math.max(1, System.nanoTime() - startNanos);
+        elapsedMillis = elapsed / 1_000_000;
+        rowsPerSecond = total * 1_000_000_000L / elapsed;
+    }
+
+    public boolean isFailuresTruncated() {
+        return failures.size() < failed;
+    }
+
+    @Getter
+    public static class RowFailure {
+        private final long row;
+        private final String name;
+        private final String reason;
+
+        RowFailure(long row, String name, String reason) {
+            this.row = row;
+            this.name = name;
+            this.reason = reason;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package jpabook.jpashop.service.bulk;
+
+import lombok.Getter;
+
+/**
+ * 가져올 회원 한 행. 형식이 잘못된 행은 error 를 가진다
+ */
+@Getter
+public class MemberImportRow {
+
+    private final long rowNumber;   // 1부터 (CSV 헤더 제외)
+    private final String name;
+    private final String city;
+    private final String street;
+    private final String zipcode;
+    private final String error;
+
+    public MemberImportRow(long rowNumber, String name, String city, String street, String zipcode) {
+        this(rowNumber, name, city, street, zipcode, null);
+    }
+
+    private MemberImportRow(long rowNumber, String name, String city, String street, String zipcode, String error) {
+        this.rowNumber = rowNumber;
+        this.name = name;
+        this.city = city;
+        this.street = street;
+        this.zipcode = zipcode;
+        this.error = error;
+    }
+
+    public static MemberImportRow invalid(long rowNumber, String error) {
+        return new MemberImportRow(rowNumber, null, null, null, null, error);
+    }
+}
@@ -0,0 +1,161 @@
+package jpabook.jpashop.service.bulk;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.support.InClauseBatchLoader;
+import jpabook.jpashop.service.MemberNameFilter;
+import jpabook.jpashop.service.MemberService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 회원 대량 가져오기. POST /api/v2/members 를 행마다 호출하면 (중복 조회 + insert + 커밋) x N 이 된다.
+ *
+ * chunkSize 행씩 읽어서
+ * 1. 형식 검증, 입력 안에서의 이름 중복은 메모리(Set)에서 걸러낸다
+ * 2. 이미 가입된 이름은 in 쿼리(InClauseBatchLoader 단위로 분할) 한 번으로 확인한다
+ * 3. 나머지를 한 트랜잭션에서 persist -> flush(JDBC batch insert) -> clear 한다
+ * chunk 저장 중 unique 제약 위반(동시에 같은 이름이 가입된 경우)이 나면 그 chunk 는 롤백하고 한 행씩 join 으로 다시 저장한다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MemberImportService {
+
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final EntityManager em;
+    private final PlatformTransactionManager transactionManager;
+    private final InClauseBatchLoader inClauseBatchLoader;
+    private final MemberService memberService;
+    private final MemberNameFilter memberNameFilter;
+    private final MemberImportProperties properties;
+
+    public MemberImportResult importMembers(Iterator<MemberImportRow> rows) {
+        long start = System.nanoTime();
+        MemberImportResult result = new MemberImportResult(properties.getMaxReportedFailures());
+        Set<String> seenNames = new HashSet<>();
+        List<MemberImportRow> chunk = new ArrayList<>(properties.getChunkSize());
+
+        try {
+            while (rows.hasNext()) {
+                MemberImportRow row = rows.next();
+                result.read();
+                String error = validate(row, seenNames);
+                if (error != null) {
+                    result.failed(row, error);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == properties.getChunkSize()) {
+                    writeChunk(chunk, result);
+                    chunk.clear();
+                }
+            }
+        } catch (RuntimeException e) {
+            // 본문이 깨졌거나 읽기가 끊긴 경우 : 그 전까지 읽은 행은 저장하고 원인을 알린다
+            log.warn("member import aborted after {} rows: {}", result.getTotal(), e.getMessage());
+            result.abort(e.getMessage());
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, result);
+        }
+
+        result.finish(start);
+        log.info("member import: {} rows, {} imported, {} failed, {} rows/sec",
+                result.getTotal(), result.getImported(), result.getFailed(), result.getRowsPerSecond());
+        return result;
+    }
+
+    private String validate(MemberImportRow row, Set<String> seenNames) {
+        if (row.getError() != null) {
+            return row.getError();
+        }
+        String name = row.getName();
+        if (name == null || name.isBlank()) {
+            return "Name is empty";
+        }
+        if (name.length() > MAX_NAME_LENGTH) {
+            return "Name is longer than " + MAX_NAME_LENGTH;
+        }
+        if (!seenNames.add(name)) {
+            return "Duplicate name in import";
+        }
+        return null;
+    }
+
+    private void writeChunk(List<MemberImportRow> chunk, MemberImportResult result) {
+        List<String> names = new ArrayList<>(chunk.size());
+        chunk.forEach(row -> names.add(row.getName()));
+
+        List<MemberImportRow> inserted = new ArrayList<>(chunk.size());
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                Set<String> existing = new HashSet<>(inClauseBatchLoader.load(names, (queryEm, chunkNames) ->
+                        queryEm.createQuery("select m.name from Member m where m.name in :names", String.class)
+                                .setParameter("names", chunkNames)
+                                .getResultList()));
+
+                em.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);  // 가져온 회원으로 2차 캐시(member 영역)를 채우지 않는다
+                for (MemberImportRow row : chunk) {
+                    if (existing.contains(row.getName())) {
+                        continue;
+                    }
+                    em.persist(toMember(row));
+                    inserted.add(row);
+                }
+                em.flush();
+                em.clear();
+            });
+        } catch (RuntimeException e) {
+            log.debug("member import chunk rolled back, retrying row by row: {}", e.toString());
+            writeRowByRow(chunk, result);
+            return;
+        }
+
+        // 커밋된 후에 결과를 반영한다 (롤백되면 위에서 한 행씩 다시 저장)
+        Set<String> insertedNames = new HashSet<>();
+        inserted.forEach(row -> {
+            insertedNames.add(row.getName());
+            memberNameFilter.add(row.getName());
+        });
+        result.imported(inserted.size());
+        for (MemberImportRow row : chunk) {
+            if (!insertedNames.contains(row.getName())) {
+                result.failed(row, "Already exist member.");
+            }
+        }
+    }
+
+    private void writeRowByRow(List<MemberImportRow> chunk, MemberImportResult result) {
+        for (MemberImportRow row : chunk) {
+            try {
+                memberService.join(toMember(row));
+                result.imported(1);
+            } catch (RuntimeException e) {
+                result.failed(row, e.getMessage());
+            }
+        }
+    }
+
+    private Member toMember(MemberImportRow row) {
+        Member member = new Member();
+        member.setName(row.getName());
+        if (row.getCity() != null || row.getStreet() != null || row.getZipcode() != null) {
+            member.setAddress(new Address(row.getCity(), row.getStreet(), row.getZipcode()));
+        }
+        return member;
+    }
+}
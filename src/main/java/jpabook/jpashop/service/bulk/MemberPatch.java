@@ -0,0 +1,21 @@
+package jpabook.jpashop.service.bulk;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 회원 일괄 수정의 한 건. null 인 항목은 변경하지 않는다 (값을 지우는 수정은 지원하지 않는다)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemberPatch {
+
+    private Long id;
+    private String name;
+    private String city;
+    private String street;
+    private String zipcode;
+
+}
@@ -0,0 +1,123 @@
+package jpabook.jpashop.service.query;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.service.OrderChangedEvent;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 읽기 위주의 주문 목록 DTO 를 Caffeine 으로 캐시한다.
+ * - 크기 제한(maximumSize)을 넘으면 W-TinyLFU 로 자주 쓰이지 않는 목록부터 제거한다
+ * - refreshAfterWrite 가 지나면 이전 목록을 바로 반환하고 백그라운드(applicationTaskExecutor)에서 다시 조회한다.
+ *   조회는 JDBC 에서 블로킹되므로 ForkJoinPool.commonPool 대신 애플리케이션 executor 를 사용한다 (가상 스레드 모드면 가상 스레드)
+ * - 주문 생성/취소가 커밋되면 세대(generation)를 올리고 전체를 무효화한다.
+ *   invalidateAll 은 아직 계산 중인 최초 조회를 지우지 못하므로, 목록에 조회 시작 시점의 세대를 붙여 두고
+ *   세대가 바뀐 목록은 반환하지 않고 다시 조회한다. 커밋 이전 스냅샷으로 만든 목록이 무효화 후에 남지 않는다.
+ *
+ * 반환하는 목록은 여러 요청이 공유하므로 수정할 수 없다.
+ */
+@Slf4j
+@Component
+public class OrderListCache {
+
+    private static final int MAX_STALE_RETRIES = 3;
+
+    private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+    private final OrderQueryRepository orderQueryRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final LoadingCache<OrderListQuery, Generational> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public OrderListCache(OrderSimpleQueryRepository orderSimpleQueryRepository,
+                          OrderQueryRepository orderQueryRepository,
+                          PlatformTransactionManager transactionManager,
+                          OrderListCacheProperties properties,
+                          MeterRegistry meterRegistry,
+                          @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor taskExecutor) {
+        this.orderSimpleQueryRepository = orderSimpleQueryRepository;
+        this.orderQueryRepository = orderQueryRepository;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .refreshAfterWrite(properties.getRefreshAfterWrite())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .executor(taskExecutor)
+                .recordStats()
+                .build(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "orderList");
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<OrderSimpleQueryDto> simpleOrders() {
+        return (List<OrderSimpleQueryDto>) get(OrderListQuery.SIMPLE_ORDERS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<OrderQueryDto> ordersWithItems() {
+        return (List<OrderQueryDto>) get(OrderListQuery.ORDERS_WITH_ITEMS);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onOrderChanged(OrderChangedEvent event) {
+        generation.incrementAndGet();   // 무효화보다 먼저 올려야 진행 중인 조회가 세대 변경을 본다
+        cache.invalidateAll();
+        log.debug("order list cache invalidated by order {}", event.getOrderId());
+    }
+
+    // 이전 세대의 목록이면 캐시에서 지우고 다시 조회한다.
+    // 주문 변경이 계속 이어져 캐시로 최신 목록을 얻지 못하면 캐시를 거치지 않고 직접 조회한다
+    private List<?> get(OrderListQuery query) {
+        for (int attempt = 0; attempt < MAX_STALE_RETRIES; attempt++) {
+            Generational cached = cache.get(query);
+            if (cached.getGeneration() == generation.get()) {
+                return cached.getList();
+            }
+            cache.asMap().remove(query, cached);
+        }
+        return load(query).getList();
+    }
+
+    // 캐시 로더는 요청 스레드 밖(refresh)에서도 실행되므로 자체 읽기 전용 트랜잭션으로 조회한다
+    // 세대는 트랜잭션(스냅샷)을 열기 전에 읽는다
+    private Generational load(OrderListQuery query) {
+        long loadGeneration = generation.get();
+        return new Generational(loadGeneration, readOnlyTx.execute(status -> {
+            switch (query) {
+                case SIMPLE_ORDERS:
+                    return Collections.unmodifiableList(orderSimpleQueryRepository.findOrderDtos());
+                case ORDERS_WITH_ITEMS:
+                    return Collections.unmodifiableList(orderQueryRepository.findAllByDto_optimization());
+                default:
+                    throw new IllegalArgumentException("Unknown order list query: " + query);
+            }
+        }));
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Generational {
+        private final long generation;
+        private final List<?> list;
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop.service.query;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "jpashop.order-list-cache")
+@Getter @Setter
+public class OrderListCacheProperties {
+
+    private long maximumSize = 100;     // 캐시할 목록 수 (초과 시 W-TinyLFU 로 제거)
+    private Duration refreshAfterWrite = Duration.ofSeconds(30);    // 이후 첫 조회 시 이전 값을 반환하고 백그라운드에서 다시 조회
+    private Duration expireAfterWrite = Duration.ofMinutes(5);      // 주문 외의 변경(회원 이름, 상품 이름)이 반영되는 최대 지연
+
+}
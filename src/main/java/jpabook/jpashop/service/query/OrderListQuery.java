@@ -0,0 +1,12 @@
+package jpabook.jpashop.service.query;
+
+/**
+ * 주문 목록 캐시의 키. 조회 쿼리 종류와 그 파라미터를 나타낸다.
+ * 현재 캐시하는 쿼리들은 파라미터가 없으므로 쿼리 종류만으로 구분한다.
+ */
+public enum OrderListQuery {
+
+    SIMPLE_ORDERS,      // OrderSimpleQueryRepository.findOrderDtos
+    ORDERS_WITH_ITEMS   // OrderQueryRepository.findAllByDto_optimization
+
+}
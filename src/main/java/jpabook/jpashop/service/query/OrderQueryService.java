@@ -1,8 +1,174 @@
 package jpabook.jpashop.service.query;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderFlatFolder;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * 주문 조회 API 의 읽기 전용 경로. open-in-view 를 끄므로 API 응답(DTO)은 여기서 트랜잭션 안에 완성한다.
+ *
+ * readOnly 트랜잭션이면 스프링(HibernateJpaDialect)이 세션을 setDefaultReadOnly(true), FlushMode.MANUAL 로 연다.
+ * 조회한 엔티티는 변경감지용 스냅샷을 만들지 않고, 커밋 시 flush 도 하지 않는다.
+ * 메서드가 끝나면 커넥션이 바로 반환된다 (응답 직렬화/뷰 렌더링 동안 커넥션을 잡고 있지 않는다).
+ */
+@Service
 @Transactional(readOnly = true)
+@RequiredArgsConstructor
 public class OrderQueryService {
 
+    private static final int FETCH_SIZE = 1000;
+    private static final int CLEAR_INTERVAL = 10_000;
+
+    private final OrderRepository orderRepository;
+    private final OrderQueryRepository orderQueryRepository;
+    private final EntityManager em;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 엔티티를 그대로 반환 (v1). 트랜잭션 밖에서는 지연 로딩을 할 수 없으므로 응답에 필요한 연관관계를 여기서 초기화한다
+     */
+    public List<Order> findOrdersWithAssociations() {
+        List<Order> all = orderRepository.findAll(new OrderSearch());
+        for (Order order : all) {
+            order.getMember().getName();
+            order.getDelivery().getAddress();
+            order.getOrderItems().forEach(o -> o.getItem().getName());
+        }
+        return all;
+    }
+
+    public List<Order> findOrders() {
+        return orderRepository.findAll(new OrderSearch());
+    }
+
+    // 지연 로딩 + default_batch_fetch_size (v2)
+    public List<OrderDto> findOrderDtos() {
+        return map(orderRepository.findAll(new OrderSearch()), OrderDto::new);
+    }
+
+    // 컬렉션 fetch join (v3)
+    public List<OrderDto> findOrderDtosWithItems() {
+        return map(orderRepository.findAllWithItem(), OrderDto::new);
+    }
+
+    // toOne fetch join + offset 페이징 (v3.1)
+    public List<OrderDto> findOrderDtos(int offset, int limit) {
+        return map(orderRepository.findAllWithMemberDelivery(offset, limit), OrderDto::new);
+    }
+
+    // toOne fetch join + keyset 페이징 (v3.2)
+    public List<OrderDto> findOrderDtos(OrderCursor after, int limit) {
+        return map(orderRepository.findAllWithMemberDelivery(after, limit), OrderDto::new);
+    }
+
+    // 1+N 번의 DTO 쿼리 (v4). 트랜잭션 하나에서 같은 커넥션으로 실행한다
+    public List<OrderQueryDto> findOrderQueryDtos() {
+        return orderQueryRepository.findOrderQueryDtos();
+    }
+
+    /**
+     * ordered flat 조회 후 주문 단위로 접기 (v6)
+     * 커서에서 읽은 행을 접는 즉시 JSON 배열의 원소로 out 에 쓴다. 메모리에는 현재 주문 하나만 남는다.
+     * @return 출력한 주문 수
+     */
+    public long writeOrderQueryDtosFlat(OutputStream out) throws IOException {
+        long[] orders = {0};
+        try (Stream<OrderFlatDto> stream = orderQueryRepository.streamAllByDto_flat(FETCH_SIZE);
+             SequenceWriter writer = objectMapper.writer().writeValuesAsArray(out)) {
+
+            OrderFlatFolder.fold(stream.iterator(), order -> {
+                try {
+                    writer.write(order);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                orders[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return orders[0];
+    }
+
+    // 주문 단위 페이징 (v6.1)
+    public List<OrderQueryDto> findOrderQueryDtosFlat(int offset, int limit) {
+        return OrderFlatFolder.fold(orderQueryRepository.findAllByDto_flatOrdered(offset, limit));
+    }
+
+    // toOne 지연 로딩 (simple-orders v2)
+    public List<SimpleOrderDto> findSimpleOrderDtos() {
+        return map(orderRepository.findAll(new OrderSearch()), SimpleOrderDto::new);
+    }
+
+    // toOne fetch join (simple-orders v3)
+    public List<SimpleOrderDto> findSimpleOrderDtosWithMemberDelivery() {
+        return map(orderRepository.findAllWithMemberDelivery(), SimpleOrderDto::new);
+    }
+
+    /**
+     * 주문 목록 화면용. 화면에서 사용하는 회원 이름, 대표 상품 이름을 여기서 초기화한다 (default_batch_fetch_size 로 in 쿼리)
+     */
+    public List<Order> findOrdersForView(OrderSearch orderSearch) {
+        List<Order> orders = orderRepository.findAll(orderSearch);
+        for (Order order : orders) {
+            order.getMember().getName();
+            List<OrderItem> orderItems = order.getOrderItems();
+            if (!orderItems.isEmpty()) {
+                orderItems.get(0).getItem().getName();
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * 전체 주문을 NDJSON(한 줄에 JSON 하나)으로 out 에 바로 쓴다.
+     * 결과 리스트를 만들지 않으므로 주문 수와 관계없이 힙 사용량이 일정하다.
+     * @return 출력한 행 수
+     */
+    public long exportOrderFlats(OutputStream out) throws IOException {
+        long rows = 0;
+        try (Stream<OrderFlatDto> stream = orderQueryRepository.streamAllByDto_flat(FETCH_SIZE);
+             SequenceWriter writer = objectMapper.writer()
+                     .withRootValueSeparator("\n")
+                     .writeValues(out)) {
+
+            Iterator<OrderFlatDto> it = stream.iterator();
+            while (it.hasNext()) {
+                writer.write(it.next());
+                if (++rows % CLEAR_INTERVAL == 0) {
+                    writer.flush();
+                    em.clear(); // 영속성 컨텍스트에 쌓일 수 있는 엔티티를 주기적으로 비운다
+                }
+            }
+        }
+        return rows;
+    }
+
+    private <T> List<T> map(List<Order> orders, Function<Order, T> mapper) {
+        return orders.stream()
+                .map(mapper)
+                .collect(toList());
+    }
 }
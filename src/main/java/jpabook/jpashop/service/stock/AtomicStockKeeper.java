@@ -0,0 +1,35 @@
+package jpabook.jpashop.service.stock;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.StockKeeper;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * "update item set stock_quantity = stock_quantity - n where item_id = ? and stock_quantity >= n" 로 재고를 변경한다.
+ * DB 가 행 단위로 원자적으로 검사/감소하므로 동시 주문에서도 초과 판매가 없다.
+ * 같은 트랜잭션에서 조회한 Item 엔티티의 stockQuantity 는 이전 값으로 남아 있으므로,
+ * 이 모드에서는 주문 트랜잭션 안에서 Item 엔티티를 수정하면 안 된다 (변경감지가 이전 재고로 덮어쓴다).
+ */
+@Component
+@ConditionalOnProperty(name = "jpashop.stock.mode", havingValue = "atomic")
+@RequiredArgsConstructor
+public class AtomicStockKeeper implements StockKeeper {
+
+    private final ItemRepository itemRepository;
+
+    @Override
+    public void removeStock(Item item, int quantity) {
+        if (itemRepository.decreaseStock(item.getId(), quantity) == 0) {
+            throw new NotEnoughStockException("need more stock");
+        }
+    }
+
+    @Override
+    public void addStock(Item item, int quantity) {
+        itemRepository.increaseStock(item.getId(), quantity);
+    }
+}
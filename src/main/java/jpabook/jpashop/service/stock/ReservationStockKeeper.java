@@ -0,0 +1,69 @@
+package jpabook.jpashop.service.stock;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.StockKeeper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * 재고를 StockReservationEngine 에서 예약하고, 트랜잭션 결과에 따라 확정/취소한다.
+ * Item 엔티티의 stockQuantity 는 변경하지 않으므로 DB 값은 write-behind 주기만큼 늦게 반영된다.
+ */
+@Component
+@ConditionalOnProperty(name = "jpashop.stock.mode", havingValue = "reservation")
+@RequiredArgsConstructor
+public class ReservationStockKeeper implements StockKeeper {
+
+    private final StockReservationEngine engine;
+
+    @Override
+    public void removeStock(Item item, int quantity) {
+        StockCounter counter = engine.reserve(item, quantity);
+        Long itemId = item.getId();
+        afterCompletion(committed -> {
+            if (committed) {
+                engine.commitReservation(itemId, counter, quantity);
+            } else {
+                engine.cancelReservation(counter, quantity);
+            }
+        });
+    }
+
+    @Override
+    public void addStock(Item item, int quantity) {
+        Long itemId = item.getId();
+        // 취소가 커밋되기 전에는 다른 주문이 재고를 가져가지 못하게 한다
+        afterCompletion(committed -> {
+            if (committed) {
+                engine.commitRestock(itemId, quantity);
+            }
+        });
+    }
+
+    @Override
+    public void stockOverwritten(Long itemId) {
+        afterCompletion(committed -> {
+            if (committed) {
+                engine.evict(itemId);
+            }
+        });
+    }
+
+    private void afterCompletion(Consumer<Boolean> callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package jpabook.jpashop.service.stock;
+
+import jpabook.jpashop.domain.item.DirtyCheckingStockKeeper;
+import jpabook.jpashop.domain.item.StockKeeper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * jpashop.stock.mode 에 따라 주문 시 사용할 StockKeeper 를 하나만 등록한다
+ */
+@Configuration
+public class StockConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "jpashop.stock.mode", havingValue = "dirty-checking", matchIfMissing = true)
+    public StockKeeper dirtyCheckingStockKeeper() {
+        return DirtyCheckingStockKeeper.INSTANCE;
+    }
+
+    // reservation 모드의 write-behind 반영을 위한 스케줄링
+    @Configuration
+    @EnableScheduling
+    @ConditionalOnProperty(name = "jpashop.stock.mode", havingValue = "reservation")
+    static class ReservationSchedulingConfig {
+    }
+}
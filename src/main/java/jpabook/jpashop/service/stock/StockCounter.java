@@ -0,0 +1,58 @@
+package jpabook.jpashop.service.stock;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 상품 하나의 메모리 재고
+ * available 은 음수가 되면 안 되므로 CAS 로 감소시키고,
+ * 아직 DB 에 반영하지 않은 변경분(pendingDelta)은 경합이 적은 LongAdder 에 누적한다.
+ */
+public class StockCounter {
+
+    private final AtomicLong available;
+    private final LongAdder pendingDelta = new LongAdder();
+
+    public StockCounter(long available) {
+        this.available = new AtomicLong(available);
+    }
+
+    /**
+     * 재고가 충분할 때만 quantity 만큼 예약한다 (lock-free)
+     */
+    public boolean tryReserve(long quantity) {
+        long current;
+        do {
+            current = available.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!available.compareAndSet(current, current - quantity));
+        return true;
+    }
+
+    /**
+     * 예약 취소, 또는 커밋된 재고 증가
+     */
+    public void release(long quantity) {
+        available.addAndGet(quantity);
+    }
+
+    /**
+     * 커밋된 변경분을 DB 반영 대기열에 쌓는다
+     */
+    public void recordDelta(long delta) {
+        pendingDelta.add(delta);
+    }
+
+    /**
+     * 반영 대기 중인 변경분을 꺼내고 0 으로 초기화한다
+     */
+    public long drainDelta() {
+        return pendingDelta.sumThenReset();
+    }
+
+    public long getAvailable() {
+        return available.get();
+    }
+}
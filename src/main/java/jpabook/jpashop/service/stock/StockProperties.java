@@ -0,0 +1,23 @@
+package jpabook.jpashop.service.stock;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "jpashop.stock")
+@Getter @Setter
+public class StockProperties {
+
+    /**
+     * dirty-checking : Item 엔티티 변경감지 (기본값)
+     * reservation    : 메모리 카운터에서 CAS 로 예약하고 DB 에는 모아서 반영 (write-behind)
+     * atomic         : 조건부 update 한 문장으로 DB 에서 바로 감소
+     */
+    private String mode = "dirty-checking";
+
+    private long flushIntervalMs = 200;     // reservation 모드에서 재고 변경분을 DB 에 반영하는 주기
+    private int flushBatchSize = 500;       // 한 번의 JDBC batch 에 담을 update 수
+
+}
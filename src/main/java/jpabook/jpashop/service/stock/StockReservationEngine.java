@@ -0,0 +1,254 @@
+package jpabook.jpashop.service.stock;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 상품별 재고를 메모리 카운터로 관리한다 (reservation 모드)
+ * 주문 시에는 카운터에서 CAS 로 예약만 하고 item 행은 건드리지 않으므로, 인기 상품 주문이 행 잠금/갱신에서 직렬화되지 않는다.
+ * 커밋된 변경분은 flushIntervalMs 마다 모아서 JDBC batch 로 item 테이블에 반영한다.
+ * 카운터는 처음 필요할 때 DB 의 재고(+ 아직 반영하지 않은 변경분)로 만든다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jpashop.stock.mode", havingValue = "reservation")
+@RequiredArgsConstructor
+public class StockReservationEngine {
+
+    private static final String FLUSH_SQL = "update item set stock_quantity = stock_quantity + ? where item_id = ?";
+    private static final String STOCK_SQL = "select stock_quantity from item where item_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final StockProperties properties;
+    private final EntityManagerFactory emf;
+
+    private final ConcurrentHashMap<Long, StockCounter> counters = new ConcurrentHashMap<>();
+    // 카운터 없이 반영을 기다리는 변경분 (evict 된 카운터에 남아 있던 커밋분, 카운터가 없는 상품의 재고 증가)
+    private final ConcurrentHashMap<Long, Long> orphanDeltas = new ConcurrentHashMap<>();
+    // 카운터 생성, evict, flush 를 직렬화한다.
+    // flush 는 변경분을 꺼내서 커밋할 때까지 이 락을 잡으므로, 카운터를 만들 때 읽는 DB 재고 + orphanDeltas 는 항상 실제 재고와 같다.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 재고 예약, 부족하면 NotEnoughStockException (Item.removeStock 과 동일)
+     * 확정/취소는 반환된 카운터로 한다 (그 사이 evict 되어 카운터가 바뀌어도 같은 카운터에 되돌리도록)
+     */
+    public StockCounter reserve(Item item, int quantity) {
+        StockCounter counter = counter(item);
+        if (!counter.tryReserve(quantity)) {
+            throw new NotEnoughStockException("need more stock");
+        }
+        return counter;
+    }
+
+    /**
+     * 주문 트랜잭션이 롤백되면 예약분을 되돌린다
+     * evict 된 카운터라면 새 카운터는 DB 에서 다시 읽었으므로 이 예약분을 포함하지 않는다. 되돌릴 것이 없다.
+     */
+    public void cancelReservation(StockCounter counter, int quantity) {
+        counter.release(quantity);
+    }
+
+    /**
+     * 주문 트랜잭션이 커밋되면 감소분을 DB 반영 대기열에 쌓는다
+     */
+    public void commitReservation(Long itemId, StockCounter counter, int quantity) {
+        counter.recordDelta(-quantity);
+        if (counters.get(itemId) != counter) {
+            adoptRetired(itemId, counter);
+        }
+    }
+
+    /**
+     * 주문 취소가 커밋되면 재고를 돌려주고 증가분을 DB 반영 대기열에 쌓는다
+     * 카운터가 없으면 DB 를 읽지 않고(트랜잭션 완료 콜백에서 호출된다) 다음 flush 에 반영한다
+     */
+    public void commitRestock(Long itemId, int quantity) {
+        lock.lock();
+        try {
+            StockCounter counter = counters.get(itemId);
+            if (counter == null) {
+                orphanDeltas.merge(itemId, (long) quantity, Long::sum);
+                return;
+            }
+            counter.release(quantity);
+            counter.recordDelta(quantity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 재고가 직접 설정된 상품은 카운터를 버리고 다음 주문 때 DB 에서 다시 읽는다
+     * 아직 반영하지 않은 커밋분은 버리지 않고 다음 flush 에 반영한다
+     */
+    public void evict(Long itemId) {
+        lock.lock();
+        try {
+            StockCounter counter = counters.remove(itemId);
+            if (counter != null) {
+                carryOver(itemId, counter.drainDelta());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long available(Long itemId) {
+        StockCounter counter = counters.get(itemId);
+        return counter == null ? -1 : counter.getAvailable();
+    }
+
+    // evict 이후에 커밋된 예약분. 새 카운터는 이 판매를 모르는 DB 값으로 시작했으므로 가용 재고에서도 뺀다
+    private void adoptRetired(Long itemId, StockCounter retired) {
+        lock.lock();
+        try {
+            long delta = retired.drainDelta();
+            if (delta == 0) {
+                return;
+            }
+            StockCounter current = counters.get(itemId);
+            if (current == null) {
+                carryOver(itemId, delta);
+            } else {
+                current.release(delta);
+                current.recordDelta(delta);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void carryOver(Long itemId, long delta) {
+        if (delta != 0) {
+            orphanDeltas.merge(itemId, delta, Long::sum);
+        }
+    }
+
+    // 카운터가 없으면(최초 주문, evict 이후) DB 의 재고 + 반영 대기 중인 변경분으로 시작한다.
+    // 엔티티의 stockQuantity 는 2차 캐시에서 온 이전 값일 수 있으므로 사용하지 않는다
+    private StockCounter counter(Item item) {
+        StockCounter counter = counters.get(item.getId());
+        if (counter != null) {
+            return counter;
+        }
+
+        lock.lock();
+        try {
+            counter = counters.get(item.getId());
+            if (counter == null) {
+                counter = new StockCounter(readStock(item));
+                Long pending = orphanDeltas.remove(item.getId());
+                if (pending != null) {
+                    counter.release(pending);
+                    counter.recordDelta(pending);
+                }
+                counters.put(item.getId(), counter);
+            }
+            return counter;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long readStock(Item item) {
+        List<Long> stock = jdbcTemplate.queryForList(STOCK_SQL, Long.class, item.getId());
+        // 같은 트랜잭션에서 만든 상품은 아직 insert 전일 수 있다. 그때는 엔티티 값이 최신이다
+        return stock.isEmpty() ? item.getStockQuantity() : stock.get(0);
+    }
+
+    @Scheduled(fixedDelayString = "${jpashop.stock.flush-interval-ms:200}")
+    public void flush() {
+        lock.lock();
+        try {
+            List<long[]> deltas = new ArrayList<>();
+            counters.forEach((itemId, counter) -> {
+                long delta = counter.drainDelta();
+                if (delta != 0) {
+                    deltas.add(new long[]{delta, itemId});
+                }
+            });
+            for (Long itemId : new ArrayList<>(orphanDeltas.keySet())) {
+                Long delta = orphanDeltas.remove(itemId);
+                if (delta != null && delta != 0) {
+                    deltas.add(new long[]{delta, itemId});
+                }
+            }
+            if (deltas.isEmpty()) {
+                return;
+            }
+            write(deltas);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(List<long[]> deltas) {
+        try {
+            // 트랜잭션 완료 콜백 등 다른 트랜잭션 자원이 묶여 있는 스레드에서도 별도 트랜잭션으로 반영한다
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            tx.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(FLUSH_SQL, deltas, properties.getFlushBatchSize(), (ps, delta) -> {
+                        ps.setLong(1, delta[0]);
+                        ps.setLong(2, delta[1]);
+                    }));
+            // JDBC 로 직접 갱신했으므로 Hibernate 2차 캐시에 남은 이전 재고를 버린다
+            for (long[] delta : deltas) {
+                emf.getCache().evict(Item.class, delta[1]);
+            }
+        } catch (RuntimeException e) {
+            // 반영하지 못한 변경분은 다음 주기에 다시 시도한다
+            for (long[] delta : deltas) {
+                StockCounter counter = counters.get(delta[1]);
+                if (counter != null) {
+                    counter.recordDelta(delta[0]);
+                } else {
+                    carryOver(delta[1], delta[0]);
+                }
+            }
+            log.warn("stock write-behind failed, {} items will be retried", deltas.size(), e);
+        }
+    }
+
+    /**
+     * 기동 시 DB 의 재고로 카운터를 맞춘다
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        lock.lock();
+        try {
+            flush();
+            jdbcTemplate.query("select item_id, stock_quantity from item",
+                    (RowCallbackHandler) rs -> counters.put(rs.getLong(1), new StockCounter(rs.getInt(2))));
+            log.info("stock reservation engine reconciled {} items", counters.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
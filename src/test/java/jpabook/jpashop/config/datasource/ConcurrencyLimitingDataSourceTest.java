@@ -0,0 +1,106 @@
+package jpabook.jpashop.config.datasource;
+
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrencyLimitingDataSourceTest {
+
+    private final ConcurrencyLimitingDataSource dataSource = new ConcurrencyLimitingDataSource(
+            new DriverManagerDataSource("jdbc:h2:mem:limit;DB_CLOSE_DELAY=-1", "sa", ""), 1, Duration.ofMillis(50));
+
+    @Test
+    public void 허가를_모두_쓰면_대기후_실패() throws Exception {
+        //given
+        Connection connection = dataSource.getConnection();
+        assertEquals(0, dataSource.getAvailablePermits());
+
+        //when
+        try {
+            dataSource.getConnection();
+            fail("허가가 없으면 SQLTransientConnectionException 이 발생해야 한다.");
+        } catch (SQLTransientConnectionException e) {
+            //then
+            assertEquals(0, dataSource.getAvailablePermits());
+        } finally {
+            connection.close();
+        }
+        assertEquals(1, dataSource.getAvailablePermits());
+    }
+
+    @Test
+    public void close_를_여러번_호출해도_허가는_한번만_반납() throws Exception {
+        //given
+        Connection connection = dataSource.getConnection();
+        assertTrue(connection.createStatement().executeQuery("select 1").next());
+
+        //when
+        connection.close();
+        connection.close();
+
+        //then
+        assertTrue(connection.isClosed());
+        assertEquals(1, dataSource.getAvailablePermits());
+        try (Connection next = dataSource.getConnection()) {
+            assertFalse(next.isClosed());
+        }
+    }
+
+    @Test
+    public void 허가를_가진_스레드는_중첩해서_커넥션을_얻는다() throws Exception {
+        try (Connection outer = dataSource.getConnection()) {
+            //when
+            try (Connection inner = dataSource.getConnection()) {
+                //then
+                assertTrue(inner.createStatement().executeQuery("select 1").next());
+                assertEquals(0, dataSource.getAvailablePermits());
+            }
+            assertEquals(0, dataSource.getAvailablePermits());
+        }
+        assertEquals(1, dataSource.getAvailablePermits());
+    }
+
+    @Test
+    public void exempt_작업은_허가_없이_커넥션을_얻는다() throws Exception {
+        //given
+        Connection holder = dataSource.getConnection();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        //when : 허가를 가진 스레드가 다른 스레드의 조회를 기다린다
+        Thread worker = new Thread(ConcurrencyLimitingDataSource.exempt(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.createStatement().executeQuery("select 1");
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }));
+        worker.start();
+        worker.join();
+        holder.close();
+
+        //then
+        assertNull(failure.get());
+        assertEquals(1, dataSource.getAvailablePermits());
+    }
+
+    @Test
+    public void unwrap_은_허가를_반납하는_프록시를_돌려준다() throws Exception {
+        //given
+        Connection connection = dataSource.getConnection();
+
+        //when
+        Connection unwrapped = connection.unwrap(Connection.class);
+        unwrapped.close();
+
+        //then
+        assertSame(connection, unwrapped);
+        assertTrue(connection.isWrapperFor(Connection.class));
+        assertEquals(1, dataSource.getAvailablePermits());
+    }
+}
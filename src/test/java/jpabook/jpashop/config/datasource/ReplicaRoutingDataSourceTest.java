@@ -0,0 +1,85 @@
+package jpabook.jpashop.config.datasource;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 메모리 H2 두 개(primary, replica)로 라우팅, replica 장애 시 primary 사용, 주문 직후 read-your-writes 를 확인한다
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1";
+    private static final String BROKEN_URL = "jdbc:h2:mem:routing_broken;IFEXISTS=TRUE";   // 존재하지 않는 DB
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void readOnly만_replica로() throws Exception {
+        ReplicaRoutingDataSource routing = routing(new ReplicaLagGuard(Duration.ZERO), REPLICA_URL);
+
+        assertEquals("ROUTING_PRIMARY", database(routing));
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals("ROUTING_REPLICA", database(routing));
+    }
+
+    @Test
+    public void replica장애시_primary로() throws Exception {
+        ReplicaRoutingDataSource routing = routing(new ReplicaLagGuard(Duration.ZERO), BROKEN_URL, REPLICA_URL);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // round-robin 첫 번째는 장애 replica -> primary 로 대신 연결
+        assertEquals("ROUTING_PRIMARY", database(routing));
+        // 장애 replica 는 retryAfter 동안 건너뛴다
+        assertEquals("ROUTING_REPLICA", database(routing));
+        assertEquals("ROUTING_REPLICA", database(routing));
+    }
+
+    @Test
+    public void 주문직후는_primary에서_읽는다() throws Exception {
+        ReplicaLagGuard guard = new ReplicaLagGuard(Duration.ofMillis(200));
+        ReplicaRoutingDataSource routing = routing(guard, REPLICA_URL);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        guard.markWrite();
+        assertEquals("ROUTING_PRIMARY", database(routing));
+
+        Thread.sleep(300);
+        assertEquals("ROUTING_REPLICA", database(routing));
+    }
+
+    private ReplicaRoutingDataSource routing(ReplicaLagGuard guard, String... replicaUrls) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.length; i++) {
+            replicas.put("replica-" + i, new DriverManagerDataSource(replicaUrls[i], "sa", ""));
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(new DriverManagerDataSource(PRIMARY_URL, "sa", ""),
+                replicas, RoutingDataSourceProperties.Selection.ROUND_ROBIN, Duration.ofMinutes(1), guard);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    private String database(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             ResultSet rs = connection.createStatement().executeQuery("select database()")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+}
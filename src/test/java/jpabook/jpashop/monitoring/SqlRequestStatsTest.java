@@ -0,0 +1,42 @@
+package jpabook.jpashop.monitoring;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SqlRequestStatsTest {
+
+    @Test
+    public void sameShapeIsCountedAsRepeat() throws Exception {
+        //given
+        SqlRequestStats stats = new SqlRequestStats(256);
+
+        //when
+        stats.statementExecuted("select * from orders", 1_000);
+        for (long id = 1; id <= 3; id++) {
+            stats.statementExecuted("select i.name from order_item oi\n  join item i on i.item_id = oi.item_id where oi.order_id = " + id, 1_000);
+        }
+        stats.statementExecuted("select m.name from member m where m.name = 'userA'", 1_000);
+        stats.statementExecuted("select m.name from member m where m.name = ?", 1_000);
+
+        //then
+        assertEquals(6, stats.getStatements());
+        assertEquals(6_000, stats.getJdbcNanos());
+        assertEquals("Only literal values differ, so the shape repeats", 3, stats.getMaxRepeats());
+        assertEquals("select i.name from order_item oi join item i on i.item_id = oi.item_id where oi.order_id = ?",
+                stats.getMostRepeatedSql());
+    }
+
+    @Test
+    public void shapesAreBounded() throws Exception {
+        SqlRequestStats stats = new SqlRequestStats(1);
+
+        stats.statementExecuted("select 1 from orders", 0);
+        stats.statementExecuted("select 1 from member", 0);
+        stats.statementExecuted("select 1 from member", 0);
+
+        assertEquals(3, stats.getStatements());
+        assertEquals(1, stats.getShapes().size());
+        assertEquals(1, stats.getMaxRepeats());
+    }
+}
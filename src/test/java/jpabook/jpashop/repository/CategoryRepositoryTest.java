@@ -0,0 +1,133 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class CategoryRepositoryTest {
+
+    @Autowired CategoryRepository categoryRepository;
+    @Autowired ItemRepository itemRepository;
+    @Autowired EntityManager em;
+
+    // root - a - b
+    //      \ c
+    Category root, a, b, c;
+    Item inRoot, inB, inC, inAandB;
+
+    @Before
+    public void setUp() {
+        root = category("root");
+        a = category("a");
+        b = category("b");
+        c = category("c");
+        root.addChildCategory(a);
+        a.addChildCategory(b);
+        root.addChildCategory(c);
+
+        inRoot = item("inRoot", root);
+        inB = item("inB", b);
+        inC = item("inC", c);
+        inAandB = item("inAandB", a, b);
+
+        for (Category category : List.of(root, a, b, c)) {
+            categoryRepository.save(category);
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    public void 서브트리_상품_조회() throws Exception {
+        assertEquals(List.of(inRoot.getId(), inB.getId(), inC.getId(), inAandB.getId()),
+                ids(categoryRepository.findItemsInSubtree(root.getId(), PageRequest.of(0, 10))));
+
+        // 두 카테고리에 속한 상품도 한 번만 나온다
+        assertEquals(List.of(inB.getId(), inAandB.getId()),
+                ids(categoryRepository.findItemsInSubtree(a.getId(), PageRequest.of(0, 10))));
+        assertEquals(List.of(inC.getId()),
+                ids(categoryRepository.findItemsInSubtree(c.getId(), PageRequest.of(0, 10))));
+    }
+
+    @Test
+    public void 서브트리_상품_페이징() throws Exception {
+        Page<Item> page = categoryRepository.findItemsInSubtree(root.getId(), PageRequest.of(1, 3));
+
+        assertEquals(4, page.getTotalElements());
+        assertEquals(List.of(inAandB.getId()), ids(page));
+    }
+
+    @Test
+    public void 저장된_트리에_서브트리_붙이기() throws Exception {
+        // 메모리에서 만든 x - y 를 저장된 b 아래에 붙인다
+        Category x = category("x");
+        Category y = category("y");
+        x.addChildCategory(y);
+        Item inY = item("inY", y);
+
+        categoryRepository.findOne(b.getId()).addChildCategory(x);
+        categoryRepository.save(x);
+        categoryRepository.save(y);
+        em.flush();
+        em.clear();
+
+        assertEquals(List.of("root", "a", "b", "x", "y"),
+                categoryRepository.findPath(y.getId()).stream().map(Category::getName).collect(toList()));
+        assertEquals(List.of("a", "b", "x", "y"),
+                categoryRepository.findSubtree(a.getId()).stream().map(Category::getName).collect(toList()));
+        assertEquals(5, categoryRepository.findItemsInSubtree(root.getId(), PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(List.of(inY.getId()), ids(categoryRepository.findItemsInSubtree(x.getId(), PageRequest.of(0, 10))));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void 부모가_있는_카테고리는_옮길_수_없다() throws Exception {
+        categoryRepository.findOne(c.getId()).addChildCategory(categoryRepository.findOne(b.getId()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void 자기_서브트리_아래에_붙일_수_없다() throws Exception {
+        Category top = category("top");
+        Category bottom = category("bottom");
+        top.addChildCategory(bottom);
+
+        bottom.addChildCategory(top);
+    }
+
+    private Category category(String name) {
+        Category category = new Category();
+        category.setName(name);
+        return category;
+    }
+
+    private Item item(String name, Category... categories) {
+        Book book = new Book();
+        book.setName(name);
+        itemRepository.save(book);
+        for (Category category : categories) {
+            category.getItems().add(book);
+        }
+        return book;
+    }
+
+    private List<Long> ids(Page<Item> page) {
+        return page.getContent().stream().map(Item::getId).collect(toList());
+    }
+}
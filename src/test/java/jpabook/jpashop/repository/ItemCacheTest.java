@@ -0,0 +1,136 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 2차 캐시에 올라간 상품이 재고 변경 방식(변경 감지, 벌크 update)과 관계없이 최신 재고로 조회되는지 확인한다
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.javax.cache.provider=com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+public class ItemCacheTest {
+
+    @Autowired ItemRepository itemRepository;
+    @Autowired EntityManagerFactory emf;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    Statistics statistics;
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void 변경감지로_재고변경() throws Exception {
+        //given
+        Long itemId = saveBook(10);
+
+        //when
+        tx.executeWithoutResult(status -> itemRepository.findOne(itemId).removeStock(3));
+
+        //then
+        statistics.clear();
+        assertEquals(7, findStock(itemId));
+        assertEquals("DB 를 조회하지 않고 캐시에서 꺼내야 한다", 1, statistics.getSecondLevelCacheHitCount());
+        assertEquals(0, statistics.getSecondLevelCacheMissCount());
+    }
+
+    @Test
+    public void 벌크update로_재고변경() throws Exception {
+        //given
+        Long itemId = saveBook(10);
+        assertEquals(10, findStock(itemId));
+
+        //when
+        tx.executeWithoutResult(status -> itemRepository.decreaseStock(itemId, 2));
+
+        //then
+        statistics.clear();
+        assertEquals("벌크 update 후에는 캐시가 무효화되어 DB 에서 다시 읽어야 한다", 8, findStock(itemId));
+        assertEquals(0, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    public void 벌크update는_다른_상품과_상품목록_캐시를_비우지_않는다() throws Exception {
+        //given
+        Long updated = saveBook(10);
+        Long other = saveBook(10);
+        assertEquals(10, findStock(other));
+        tx.execute(status -> itemRepository.findAll());
+
+        //when
+        tx.executeWithoutResult(status -> itemRepository.decreaseStock(updated, 2));
+
+        //then
+        statistics.clear();
+        assertEquals(10, findStock(other));
+        assertEquals("변경하지 않은 상품은 캐시에 남아 있어야 한다", 1, statistics.getSecondLevelCacheHitCount());
+        tx.execute(status -> itemRepository.findAll());
+        assertEquals("재고 변경은 상품 목록 쿼리 캐시를 무효화하지 않는다", 1, statistics.getQueryCacheHitCount());
+        assertEquals(8, findStock(updated));
+    }
+
+    @Test
+    public void 상품목록_쿼리캐시() throws Exception {
+        //given
+        saveBook(10);
+        tx.execute(status -> itemRepository.findAll());
+
+        //when
+        statistics.clear();
+        tx.execute(status -> itemRepository.findAll());
+
+        //then
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertEquals("쿼리 캐시 적중 시 SQL 을 실행하지 않는다", 0, statistics.getPrepareStatementCount());
+
+        //when : 상품이 추가되면 쿼리 캐시가 무효화된다
+        saveBook(5);
+        statistics.clear();
+        tx.execute(status -> itemRepository.findAll());
+
+        //then
+        assertEquals(0, statistics.getQueryCacheHitCount());
+    }
+
+    private Long saveBook(int stockQuantity) {
+        return tx.execute(status -> {
+            Book book = new Book();
+            book.setName("CACHED BOOK");
+            book.setPrice(10000);
+            book.setStockQuantity(stockQuantity);
+            itemRepository.save(book);
+            return book.getId();
+        });
+    }
+
+    private int findStock(Long itemId) {
+        return tx.execute(status -> {
+            Item item = itemRepository.findOne(itemId);
+            return item.getStockQuantity();
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderRepositoryTest {
+
+    @Autowired OrderRepository orderRepository;
+    @Autowired EntityManager em;
+
+    @Test
+    public void cursorRoundTrip() throws Exception {
+        OrderCursor cursor = new OrderCursor(LocalDateTime.of(2022, 6, 1, 12, 30, 15, 123), 42L);
+
+        OrderCursor decoded = OrderCursor.decode(cursor.encode());
+
+        assertEquals(cursor.getOrderDate(), decoded.getOrderDate());
+        assertEquals(cursor.getOrderId(), decoded.getOrderId());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCursor() throws Exception {
+        OrderCursor.decode("not-a-cursor");
+    }
+
+    @Test
+    public void keysetPagingVisitsEveryOrderOnce() throws Exception {
+        //given
+        List<Order> all = em.createQuery("select o from Order o order by o.orderDate, o.id", Order.class)
+                .getResultList();
+
+        //when
+        List<Long> visited = new ArrayList<>();
+        OrderCursor cursor = null;
+        while (true) {
+            List<Order> page = orderRepository.findAllWithMemberDelivery(cursor, 1);
+            if (page.isEmpty()) {
+                break;
+            }
+            Order last = page.get(page.size() - 1);
+            page.forEach(o -> visited.add(o.getId()));
+            cursor = OrderCursor.decode(new OrderCursor(last.getOrderDate(), last.getId()).encode());
+        }
+
+        //then
+        List<Long> expected = new ArrayList<>();
+        all.forEach(o -> expected.add(o.getId()));
+        assertEquals("Keyset paging must follow (orderDate, id) order without gaps", expected, visited);
+    }
+
+    @Test
+    public void searchCombinations() throws Exception {
+        //given : InitDB 의 userA, userB 주문
+        OrderSearch byName = new OrderSearch();
+        byName.setMemberName("userA");
+        byName.setNameMatch(MemberNameMatch.PREFIX);
+
+        OrderSearch byNameAndStatus = new OrderSearch();
+        byNameAndStatus.setMemberName("userA");
+        byNameAndStatus.setOrderStatus(OrderStatus.CANCEL);
+
+        OrderSearch wildcardIsLiteral = new OrderSearch();
+        wildcardIsLiteral.setMemberName("user_");
+
+        //then
+        long total = em.createQuery("select count(o) from Order o", Long.class).getSingleResult();
+        assertEquals(total, orderRepository.search(new OrderSearch(), PageRequest.of(0, 1)).getTotalElements());
+        assertTrue(orderRepository.findAll(byName).stream().allMatch(o -> o.getMember().getName().equals("userA")));
+        assertEquals(1, orderRepository.search(byName, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(0, orderRepository.search(byNameAndStatus, PageRequest.of(0, 10)).getTotalElements());
+        assertEquals(0, orderRepository.findAll(wildcardIsLiteral).size());
+    }
+
+    @Test
+    public void searchPagingAndSort() throws Exception {
+        //when
+        Page<OrderSearchDto> first = orderRepository.search(new OrderSearch(), PageRequest.of(0, 1, Sort.by("orderId")));
+        Page<OrderSearchDto> second = orderRepository.search(new OrderSearch(), PageRequest.of(1, 1, Sort.by("orderId")));
+
+        //then
+        assertEquals(1, first.getContent().size());
+        assertTrue(first.getContent().get(0).getOrderId() < second.getContent().get(0).getOrderId());
+        assertEquals(first.getTotalElements(), second.getTotalElements());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void searchRejectsUnknownSort() throws Exception {
+        orderRepository.search(new OrderSearch(), PageRequest.of(0, 10, Sort.by("member.password")));
+    }
+}
@@ -0,0 +1,195 @@
+package jpabook.jpashop.repository;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import jpabook.jpashop.domain.OrderStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * OrderSearch 조건 조합마다 OrderRepository 가 실제로 실행한 SQL(p6spy 로 수집)에 H2 EXPLAIN 을 실행하여
+ * 테이블 전체 스캔(tableScan) 없이 인덱스를 사용하는지 확인한다.
+ * 통계(ANALYZE)가 있어야 옵티마이저가 실제 데이터 분포로 계획을 세우므로 주문 데이터를 넣고 분석한다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderSearchIndexTest {
+
+    private static final long ID_BASE = 900_000_000L;   // 시퀀스로 발급되는 id 와 겹치지 않도록
+    private static final int MEMBERS = 200;
+    private static final int ORDERS_PER_MEMBER = 10;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired OrderRepository orderRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    TransactionTemplate readOnlyTx;
+
+    @Before
+    public void setUp() {
+        List<Object[]> members = new ArrayList<>();
+        List<Object[]> deliveries = new ArrayList<>();
+        List<Object[]> orders = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int m = 0; m < MEMBERS; m++) {
+            members.add(new Object[]{ID_BASE + m, "explain" + m});
+            for (int o = 0; o < ORDERS_PER_MEMBER; o++) {
+                long id = ID_BASE + m * ORDERS_PER_MEMBER + o;
+                deliveries.add(new Object[]{id});
+                orders.add(new Object[]{id, ID_BASE + m, id, Timestamp.valueOf(now.minusMinutes(id - ID_BASE)),
+                        o == 0 ? "CANCEL" : "ORDER"});
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into member (member_id, name) values (?, ?)", members);
+        jdbcTemplate.batchUpdate("insert into delivery (delivery_id, status) values (?, 'READY')", deliveries);
+        jdbcTemplate.batchUpdate("insert into orders (order_id, member_id, delivery_id, order_date, status) values (?, ?, ?, ?, ?)", orders);
+        jdbcTemplate.execute("analyze");
+
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("delete from orders where order_id >= ?", ID_BASE);
+        jdbcTemplate.update("delete from delivery where delivery_id >= ?", ID_BASE);
+        jdbcTemplate.update("delete from member where member_id >= ?", ID_BASE);
+    }
+
+    @Test
+    public void 주문상태() throws Exception {
+        OrderSearch orderSearch = search(OrderStatus.CANCEL, null, null);
+
+        for (String plan : explainGenerated(orderSearch)) {
+            assertTrue(plan, plan.contains("IDX_ORDERS_STATUS_ORDER_DATE"));
+            assertNoTableScan(plan);
+        }
+    }
+
+    @Test
+    public void 회원이름_PREFIX() throws Exception {
+        OrderSearch orderSearch = search(null, "explain12", MemberNameMatch.PREFIX);
+
+        for (String plan : explainGenerated(orderSearch)) {
+            assertTrue(plan, plan.contains("UK_MEMBER_NAME"));
+            assertNoTableScan(plan);
+        }
+    }
+
+    @Test
+    public void 주문상태_회원이름_PREFIX() throws Exception {
+        OrderSearch orderSearch = search(OrderStatus.ORDER, "explain12", MemberNameMatch.PREFIX);
+
+        for (String plan : explainGenerated(orderSearch)) {
+            assertTrue(plan, plan.contains("UK_MEMBER_NAME") || plan.contains("IDX_ORDERS_STATUS_ORDER_DATE"));
+            assertNoTableScan(plan);
+        }
+    }
+
+    @Test
+    public void 회원이름_CONTAINS는_인덱스를_사용할수없다() throws Exception {
+        OrderSearch orderSearch = search(null, "plain12", MemberNameMatch.CONTAINS);
+
+        for (String plan : explainGenerated(orderSearch)) {
+            assertFalse(plan, plan.contains("UK_MEMBER_NAME"));
+        }
+    }
+
+    @Test
+    public void 회원별_주문조회는_FK_인덱스() throws Exception {
+        assertTrue(explain("select o.order_id from orders o where o.member_id = " + ID_BASE).contains("IDX_ORDERS_MEMBER_ID"));
+        assertTrue(explain("select oi.order_item_id from order_item oi where oi.order_id = " + ID_BASE).contains("IDX_ORDER_ITEM_ORDER_ID"));
+        assertTrue(explain("select oi.order_item_id from order_item oi where oi.item_id = " + ID_BASE).contains("IDX_ORDER_ITEM_ITEM_ID"));
+    }
+
+    /**
+     * OrderRepository.findAll, search(주문일 역순 페이징, count 포함)가 실제로 실행한 SQL 각각의 실행 계획
+     */
+    private List<String> explainGenerated(OrderSearch orderSearch) {
+        List<String> sqls = CapturingJdbcEventListener.capture(() -> readOnlyTx.executeWithoutResult(status -> {
+            orderRepository.findAll(orderSearch);
+            orderRepository.search(orderSearch, PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "orderDate")));
+        }));
+
+        List<String> plans = new ArrayList<>();
+        for (String sql : sqls) {
+            if (sql.trim().toLowerCase().startsWith("select")) {
+                plans.add(explain(sql));
+            }
+        }
+        assertTrue("findAll, search 와 count 쿼리가 실행되어야 한다: " + sqls, plans.size() >= 3);
+        return plans;
+    }
+
+    private OrderSearch search(OrderStatus status, String memberName, MemberNameMatch nameMatch) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setOrderStatus(status);
+        orderSearch.setMemberName(memberName);
+        if (nameMatch != null) {
+            orderSearch.setNameMatch(nameMatch);
+        }
+        return orderSearch;
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("explain " + sql, String.class).toUpperCase();
+    }
+
+    private void assertNoTableScan(String plan) {
+        assertFalse(plan, plan.contains("TABLESCAN"));
+    }
+
+    /**
+     * 현재 스레드에서 실행된 SQL 을 바인딩 값이 채워진 형태(p6spy getSqlWithValues)로 모은다
+     */
+    @TestConfiguration
+    static class CapturingJdbcEventListener extends SimpleJdbcEventListener {
+
+        private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+        @Bean
+        CapturingJdbcEventListener capturingJdbcEventListener() {
+            return new CapturingJdbcEventListener();
+        }
+
+        static List<String> capture(Runnable work) {
+            List<String> sqls = new ArrayList<>();
+            CAPTURED.set(sqls);
+            try {
+                work.run();
+            } finally {
+                CAPTURED.remove();
+            }
+            return sqls;
+        }
+
+        @Override
+        public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+            List<String> sqls = CAPTURED.get();
+            if (sqls != null && e == null) {
+                sqls.add(statementInformation.getSqlWithValues());
+            }
+        }
+    }
+}
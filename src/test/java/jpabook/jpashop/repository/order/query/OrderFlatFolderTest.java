@@ -0,0 +1,48 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OrderFlatFolderTest {
+
+    @Test
+    public void foldAdjacentRowsKeepingOrder() throws Exception {
+        //given
+        List<OrderFlatDto> rows = new ArrayList<>();
+        rows.add(row(3L, "JPA1 BOOK"));
+        rows.add(row(3L, "JPA2 BOOK"));
+        rows.add(row(1L, "SPRING1 BOOK"));
+        rows.add(row(2L, "SPRING2 BOOK"));
+        rows.add(row(2L, "SPRING3 BOOK"));
+
+        //when
+        List<OrderQueryDto> orders = OrderFlatFolder.fold(rows);
+
+        //then
+        assertEquals(3, orders.size());
+        assertEquals("Input order must be kept", Long.valueOf(3L), orders.get(0).getOrderId());
+        assertEquals(Long.valueOf(1L), orders.get(1).getOrderId());
+        assertEquals(Long.valueOf(2L), orders.get(2).getOrderId());
+        assertEquals(2, orders.get(0).getOrderItems().size());
+        assertEquals(1, orders.get(1).getOrderItems().size());
+        assertEquals("SPRING3 BOOK", orders.get(2).getOrderItems().get(1).getItemName());
+    }
+
+    @Test
+    public void foldEmpty() throws Exception {
+        assertTrue(OrderFlatFolder.fold(new ArrayList<>()).isEmpty());
+    }
+
+    private OrderFlatDto row(Long orderId, String itemName) {
+        return new OrderFlatDto(orderId, "userA", LocalDateTime.now(), OrderStatus.ORDER,
+                new Address("서울", "1", "1111"), itemName, 10000, 1);
+    }
+}
@@ -0,0 +1,49 @@
+package jpabook.jpashop.repository.support;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void addedValuesAreAlwaysFound() throws Exception {
+        //given
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+
+        //when
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("member" + i);
+        }
+
+        //then
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("member" + i));
+        }
+    }
+
+    @Test
+    public void falsePositiveRateIsNearConfigured() throws Exception {
+        //given
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("member" + i);
+        }
+
+        //when
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+
+        //then
+        assertTrue("false positive rate: " + falsePositives / 100_000.0, falsePositives < 2_000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidRate() throws Exception {
+        new BloomFilter(100, 1.0);
+    }
+}
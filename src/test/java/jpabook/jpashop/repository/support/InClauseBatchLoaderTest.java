@@ -0,0 +1,130 @@
+package jpabook.jpashop.repository.support;
+
+import jpabook.jpashop.domain.Member;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+/**
+ * chunk-size 보다 많은 id 를 순차/병렬 모드로 조회해도 결과가 빠짐없이, 중복 없이, chunk 순서대로 이어지는지 확인한다.
+ * 병렬 모드는 별도 EntityManager(별도 커넥션)로 조회하므로 회원은 커밋해 두고 끝나면 지운다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class InClauseBatchLoaderTest {
+
+    private static final int MEMBERS = 23;
+
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    List<Long> ids = new ArrayList<>();
+    InClauseBatchLoader loader;
+
+    @Before
+    public void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < MEMBERS; i++) {
+                Member member = new Member();
+                member.setName("in-batch-" + i);
+                em.persist(member);
+                ids.add(member.getId());
+            }
+        });
+        Collections.sort(ids);
+    }
+
+    @After
+    public void tearDown() {
+        if (loader != null) {
+            loader.shutdown();
+        }
+        tx.executeWithoutResult(status -> em.createQuery("delete from Member m where m.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate());
+    }
+
+    @Test
+    public void 순차_조회() throws Exception {
+        //given
+        loader = loader(5, false, 1);
+
+        //when
+        List<Long> loaded = tx.execute(status -> loadWithDuplicates(null));
+
+        //then
+        assertEquals(ids, loaded);
+    }
+
+    @Test
+    public void 병렬_조회() throws Exception {
+        //given
+        loader = loader(5, true, 2);
+
+        //when
+        List<Long> loaded = tx.execute(status -> loadWithDuplicates(null));
+
+        //then
+        assertEquals(ids, loaded);
+    }
+
+    @Test
+    public void 대기열이_가득차면_호출_스레드에서_조회() throws Exception {
+        //given : 작업 스레드 1개, 대기열 4개인데 chunk 는 23개
+        loader = loader(1, true, 1);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        //when
+        List<Long> loaded = tx.execute(status -> loadWithDuplicates(threads));
+
+        //then
+        assertEquals(ids, loaded);
+        assertTrue("CallerRunsPolicy 로 일부 chunk 는 호출 스레드에서 실행되어야 한다", threads.contains(Thread.currentThread()));
+        assertTrue(threads.size() > 1);
+    }
+
+    private InClauseBatchLoader loader(int chunkSize, boolean parallel, int threads) {
+        InClauseBatchProperties properties = new InClauseBatchProperties();
+        properties.setChunkSize(chunkSize);
+        properties.setParallel(parallel);
+        properties.setThreads(threads);
+        InClauseBatchLoader loader = new InClauseBatchLoader(em, emf, properties);
+        loader.init();
+        return loader;
+    }
+
+    // 같은 id 를 두 번씩 넘겨도 한 번만 조회한다. chunk 안에서는 id 순으로 정렬하므로 결과 전체가 id 순이어야 한다
+    private List<Long> loadWithDuplicates(Set<Thread> threads) {
+        List<Long> keys = new ArrayList<>(ids);
+        keys.addAll(ids);
+        List<Member> members = loader.load(keys, (entityManager, chunk) -> {
+            if (threads != null) {
+                threads.add(Thread.currentThread());
+            }
+            return entityManager.createQuery("select m from Member m where m.id in :ids order by m.id", Member.class)
+                    .setParameter("ids", chunk)
+                    .getResultList();
+        });
+        return members.stream().map(Member::getId).collect(toList());
+    }
+}
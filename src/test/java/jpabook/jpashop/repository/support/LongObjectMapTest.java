@@ -0,0 +1,57 @@
+package jpabook.jpashop.repository.support;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LongObjectMapTest {
+
+    @Test
+    public void putAndGetBeyondInitialCapacity() throws Exception {
+        //given
+        LongObjectMap<String> map = new LongObjectMap<>(2);
+
+        //when
+        for (long i = 0; i < 10_000; i++) {
+            map.put(i * 31, "v" + i);
+        }
+
+        //then
+        assertEquals(10_000, map.size());
+        assertEquals("v0", map.get(0L));
+        assertEquals("v9999", map.get(9999L * 31));
+        assertNull(map.get(1L));
+    }
+
+    @Test
+    public void putReplacesExistingValue() throws Exception {
+        LongObjectMap<String> map = new LongObjectMap<>();
+
+        assertNull(map.put(-7L, "a"));
+        assertEquals("a", map.put(-7L, "b"));
+
+        assertEquals(1, map.size());
+        assertEquals("b", map.get(-7L));
+    }
+
+    @Test
+    public void computeIfAbsentGroupsValues() throws Exception {
+        LongObjectMap<List<Integer>> map = new LongObjectMap<>();
+
+        map.computeIfAbsent(1L, k -> new ArrayList<>()).add(1);
+        map.computeIfAbsent(1L, k -> new ArrayList<>()).add(2);
+        map.computeIfAbsent(2L, k -> new ArrayList<>()).add(3);
+
+        assertEquals(2, map.size());
+        assertEquals(2, map.get(1L).size());
+        assertTrue(map.containsKey(2L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullValueIsRejected() throws Exception {
+        new LongObjectMap<String>().put(1L, null);
+    }
+}
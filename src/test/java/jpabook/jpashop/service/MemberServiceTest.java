@@ -1,15 +1,22 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.MemberSummary;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -56,4 +63,65 @@ public class MemberServiceTest {
 
     }
 
-}
\ No newline at end of file
+    @Test(expected = IllegalStateException.class)
+    public void duplicationMemberByUniqueConstraint() throws Exception {
+        //given : 서비스(이름 필터)를 거치지 않고 저장된 회원
+        Member member1 = new Member();
+        member1.setName("lee");
+        em.persist(member1);
+        em.flush();
+
+        Member member2 = new Member();
+        member2.setName("lee");
+
+        //when
+        memberService.join(member2);    //필터가 모르는 이름이어도 unique 제약으로 예외가 발생해야 한다
+
+        //then
+        fail("Exception must be happened");
+    }
+
+    @Test
+    public void updateReturnsUpdatedMember() throws Exception {
+        //given
+        Long id = join("before", new Address("서울", "강가", "123-123"));
+
+        //when
+        MemberSummary updated = memberService.update(id, "after");
+
+        //then
+        assertEquals(id, updated.getId());
+        assertEquals("after", updated.getName());
+        assertEquals("서울", updated.getAddress().getCity());
+    }
+
+    @Test
+    public void memberSummaryPaging() throws Exception {
+        //given
+        Long first = join("summary1", new Address("서울", "강가", "123-123"));
+        Long second = join("summary2", null);
+        join("summary3", null);
+
+        //when
+        Page<MemberSummary> page = memberService.findMemberSummaries(PageRequest.of(0, 2, Sort.by("id")));
+        Slice<MemberSummary> slice = memberService.findMemberSummarySlice(PageRequest.of(0, 1, Sort.by("id")));
+        List<MemberSummary> afterFirst = memberService.findMemberSummariesAfter(first, 1);
+
+        //then
+        assertEquals(memberRepository.count(), page.getTotalElements());
+        assertEquals(2, page.getContent().size());
+        assertTrue(slice.hasNext());
+        assertEquals(1, afterFirst.size());
+        assertEquals(second, afterFirst.get(0).getId());
+        assertEquals("summary2", afterFirst.get(0).getName());
+        assertNull(afterFirst.get(0).getAddress());
+    }
+
+    private Long join(String name, Address address) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(address);
+        return memberService.join(member);
+    }
+
+}
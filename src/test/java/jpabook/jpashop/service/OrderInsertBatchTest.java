@@ -0,0 +1,109 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.item.Book;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 대량 주문 생성 시 JDBC batch 와 pooled-lo 시퀀스로 실행되는 SQL 수가 줄어드는지 확인한다
+ * 주문 1건 = orders, delivery, order_item 2건 = insert 4번
+ * 저장한 주문은 롤백하여 테스트 DB 에 남기지 않는다
+ * test/resources/application.yml 이 main 설정을 가리므로 batch 설정을 여기서 다시 선언한다
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.jdbc.batch_size=100",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.order_updates=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.SQL=info",
+        "logging.level.org.hibernate.type=info"})
+public class OrderInsertBatchTest {
+
+    private static final int ORDERS = 200;
+    private static final int FLUSH_INTERVAL = 100;
+
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void bulkOrderInsert() throws Exception {
+        Long[] ids = new TransactionTemplate(transactionManager).execute(status -> {
+            Member member = new Member();
+            member.setName("bulk");
+            member.setAddress(new Address("서울", "1", "1111"));
+            em.persist(member);
+
+            Long[] result = new Long[3];
+            result[0] = member.getId();
+            for (int i = 1; i <= 2; i++) {
+                Book book = new Book();
+                book.setName("BULK BOOK " + i);
+                book.setPrice(10000);
+                book.setStockQuantity(Integer.MAX_VALUE);
+                em.persist(book);
+                result[i] = book.getId();
+            }
+            return result;
+        });
+
+        Statistics unbatched = run(ids, 1);      // 이전 : insert 1건씩 전송
+        long inserts = unbatched.getEntityInsertCount();
+        assertEquals(ORDERS * 4L, inserts);
+        assertTrue("Every insert is its own statement without batching", unbatched.getPrepareStatementCount() >= inserts);
+        // 나머지는 시퀀스 조회와 flush 후 다시 읽는 회원/상품. 시퀀스는 50개 단위로 가져오므로 insert 수보다 훨씬 적다
+        assertTrue("Sequence calls must be pooled", unbatched.getPrepareStatementCount() - inserts < inserts / 20);
+
+        Statistics batched = run(ids, null);    // 이후 : hibernate.jdbc.batch_size 사용
+        assertEquals(inserts, batched.getEntityInsertCount());
+        assertTrue("Inserts must be sent in JDBC batches: " + batched.getPrepareStatementCount(),
+                batched.getPrepareStatementCount() < inserts / 10);
+    }
+
+    private Statistics run(Long[] ids, Integer jdbcBatchSize) {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            for (int i = 0; i < ORDERS; i++) {
+                Member member = em.find(Member.class, ids[0]);
+                Book book1 = em.find(Book.class, ids[1]);
+                Book book2 = em.find(Book.class, ids[2]);
+
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                em.persist(Order.createOrder(member, delivery,
+                        OrderItem.createOrderItem(book1, book1.getPrice(), 1),
+                        OrderItem.createOrderItem(book2, book2.getPrice(), 1)));
+
+                if ((i + 1) % FLUSH_INTERVAL == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            status.setRollbackOnly();
+        });
+        return statistics;
+    }
+}
@@ -16,9 +16,13 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.assertj.core.api.Fail.fail;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 
 @RunWith(SpringRunner.class)
@@ -92,6 +96,79 @@ public class OrderServiceTest {
     }
 
 
+    @Test
+    public void OrderBasket() throws Exception {
+        //given
+        Member member = createMember();
+        Book book1 = createBook("시골 JPA", 10000, 10);
+        Book book2 = createBook("도시 JPA", 20000, 10);
+
+        //when
+        Long orderId = orderService.order(member.getId(), Arrays.asList(
+                new OrderLine(book1.getId(), 2),
+                new OrderLine(book2.getId(), 1),
+                new OrderLine(book1.getId(), 1)));
+
+        //then
+        Order getOrder = orderRepository.findOne(orderId);
+
+        assertEquals("Same item lines must be merged", 2, getOrder.getOrderItems().size());
+        assertEquals("Order Price is sum of lines", 10000 * 3 + 20000, getOrder.getTotalPrice());
+        assertEquals(7, book1.getStockQuantity());
+        assertEquals(9, book2.getStockQuantity());
+    }
+
+    @Test(expected = NotEnoughStockException.class)
+    public void OrderBasket_StockOver() throws Exception {
+        //given
+        Member member = createMember();
+        Book book1 = createBook("시골 JPA", 10000, 10);
+        Book book2 = createBook("도시 JPA", 20000, 1);
+
+        //when
+        orderService.order(member.getId(), Arrays.asList(
+                new OrderLine(book1.getId(), 1),
+                new OrderLine(book2.getId(), 2)));
+
+        //then
+        fail("NotEnoughStockException must be occurred");
+    }
+
+    @Test
+    public void OrderAll_StockOverFailsOnlyThatCommand() throws Exception {
+        //given
+        Member member = createMember();
+        Book book1 = createBook("시골 JPA", 10000, 10);
+        Book book2 = createBook("도시 JPA", 20000, 1);
+
+        //when
+        List<OrderOutcome> outcomes = orderService.orderAll(Arrays.asList(
+                new OrderCommand(member.getId(), Arrays.asList(new OrderLine(book1.getId(), 2))),
+                new OrderCommand(member.getId(), Arrays.asList(   // book1 은 감소한 후 book2 에서 실패
+                        new OrderLine(book1.getId(), 3),
+                        new OrderLine(book2.getId(), 2))),
+                new OrderCommand(-1L, Arrays.asList(new OrderLine(book1.getId(), 1))),
+                new OrderCommand(member.getId(), Arrays.asList(new OrderLine(book2.getId(), 1)))));
+
+        //then
+        assertTrue(outcomes.get(0).isSuccess());
+        assertEquals("need more stock", outcomes.get(1).getError());
+        assertEquals("Member not found: -1", outcomes.get(2).getError());
+        assertTrue(outcomes.get(3).isSuccess());
+        assertEquals("Failed order must not keep its stock", 8, book1.getStockQuantity());
+        assertEquals(0, book2.getStockQuantity());
+    }
+
+    @Test
+    public void Order_MemberNotFound() throws Exception {
+        Book book = createBook("시골 JPA", 10000, 10);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> orderService.order(-1L, Arrays.asList(new OrderLine(book.getId(), 1))));
+        assertEquals("Member not found: -1", e.getMessage());
+    }
+
+
     private Book createBook(String name, int price, int stockQuantity) {
         Book book = new Book();
         book.setName(name);
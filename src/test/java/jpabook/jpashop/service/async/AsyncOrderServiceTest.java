@@ -0,0 +1,104 @@
+package jpabook.jpashop.service.async;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderLine;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 비동기 주문은 모아서 한 트랜잭션에 저장하되 결과는 요청별로 남아야 한다
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.async-order.max-batch-delay=200ms")   // 연속으로 넣은 요청이 한 배치가 되도록
+public class AsyncOrderServiceTest {
+
+    @Autowired AsyncOrderService asyncOrderService;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+
+    @Test
+    public void 잘못된_요청만_실패() throws Exception {
+        //given
+        Long memberId = createMember("async-invalid");
+        Long itemId = createBook(10);
+
+        //when
+        String first = asyncOrderService.submit(memberId, List.of(new OrderLine(itemId, 2)));
+        String missingItem = asyncOrderService.submit(memberId, List.of(new OrderLine(-1L, 1)));
+        String missingMember = asyncOrderService.submit(-1L, List.of(new OrderLine(itemId, 1)));
+        String second = asyncOrderService.submit(memberId, List.of(new OrderLine(itemId, 3)));
+
+        //then
+        assertEquals(OrderTicket.Status.COMPLETED, await(first).getStatus());
+        assertEquals(OrderTicket.Status.COMPLETED, await(second).getStatus());
+        assertEquals("Item not found: -1", await(missingItem).getError());
+        assertEquals("Member not found: -1", await(missingMember).getError());
+        assertEquals(5, itemService.findOne(itemId).getStockQuantity());
+    }
+
+    @Test
+    public void 재고부족인_주문만_실패() throws Exception {
+        //given
+        Long memberId = createMember("async-stock");
+        Long itemId = createBook(5);
+
+        //when
+        String first = asyncOrderService.submit(memberId, List.of(new OrderLine(itemId, 3)));
+        String tooMany = asyncOrderService.submit(memberId, List.of(new OrderLine(itemId, 3)));
+        String last = asyncOrderService.submit(memberId, List.of(new OrderLine(itemId, 2)));
+
+        //then
+        OrderTicket firstTicket = await(first);
+        assertEquals(OrderTicket.Status.COMPLETED, firstTicket.getStatus());
+        assertNotNull(firstTicket.getOrderId());
+        assertEquals(OrderTicket.Status.FAILED, await(tooMany).getStatus());
+        assertEquals("need more stock", await(tooMany).getError());
+        assertEquals(OrderTicket.Status.COMPLETED, await(last).getStatus());
+        assertEquals(0, itemService.findOne(itemId).getStockQuantity());
+    }
+
+    @Test
+    public void 알수없는_ticket() throws Exception {
+        assertFalse(asyncOrderService.findTicket("unknown").isPresent());
+    }
+
+    private OrderTicket await(String ticket) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            OrderTicket result = asyncOrderService.findTicket(ticket).orElseThrow();
+            if (result.getStatus() != OrderTicket.Status.PENDING) {
+                return result;
+            }
+            Thread.sleep(20);
+        }
+        fail("ticket is still pending: " + ticket);
+        return null;
+    }
+
+    private Long createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+
+    private Long createBook(int stock) {
+        Book book = new Book();
+        book.setName("ASYNC BOOK");
+        book.setPrice(10000);
+        book.setStockQuantity(stock);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
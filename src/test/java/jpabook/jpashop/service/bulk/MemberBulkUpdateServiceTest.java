@@ -0,0 +1,77 @@
+package jpabook.jpashop.service.bulk;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.MemberService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class MemberBulkUpdateServiceTest {
+
+    @Autowired MemberBulkUpdateService memberBulkUpdateService;
+    @Autowired MemberService memberService;
+
+    @Test
+    public void 일괄_부분수정() throws Exception {
+        //given
+        Long renamed = join("patch-1");
+        Long moved = join("patch-2");
+        Long conflicting = join("patch-3");
+        memberService.findOne(moved);   // 2차 캐시에 올려둔다
+
+        //when
+        MemberBulkUpdateResult result = memberBulkUpdateService.update(List.of(
+                new MemberPatch(renamed, "patch-1-renamed", null, null, null),
+                new MemberPatch(moved, null, "부산", null, null),
+                new MemberPatch(conflicting, "patch-2", null, null, null),
+                new MemberPatch(-1L, "patch-unknown", null, null, null),
+                new MemberPatch(moved, "patch-2-again", null, null, null)));
+
+        //then
+        assertEquals(5, result.getRequested());
+        assertEquals(2, result.getUpdated());
+        assertEquals(3, result.getFailed());
+        assertEquals("Already exist member.", result.getFailures().get(1).getReason());
+        assertEquals("Member not found", result.getFailures().get(2).getReason());
+        assertEquals("Duplicate id in request", result.getFailures().get(0).getReason());
+
+        assertEquals("patch-1-renamed", memberService.findOne(renamed).getName());
+        Member movedMember = memberService.findOne(moved);
+        assertEquals("patch-2", movedMember.getName());
+        assertEquals("부산", movedMember.getAddress().getCity());
+        assertEquals("강가", movedMember.getAddress().getStreet());
+        assertEquals("patch-3", memberService.findOne(conflicting).getName());
+    }
+
+    @Test
+    public void 모든_항목의_길이를_미리_검증한다() throws Exception {
+        //given
+        Long id = join("patch-long");
+        String tooLong = "가".repeat(256);
+
+        //when
+        MemberBulkUpdateResult result = memberBulkUpdateService.update(List.of(
+                new MemberPatch(id, null, tooLong, null, null)));
+
+        //then
+        assertEquals(0, result.getUpdated());
+        assertEquals("City is longer than 255", result.getFailures().get(0).getReason());
+        assertEquals("서울", memberService.findOne(id).getAddress().getCity());
+    }
+
+    private Long join(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+}
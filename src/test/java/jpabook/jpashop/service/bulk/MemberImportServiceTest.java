@@ -0,0 +1,102 @@
+package jpabook.jpashop.service.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.exception.MalformedImportException;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.service.MemberService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "jpashop.member-import.chunk-size=2")  // 여러 chunk 트랜잭션으로 나뉘도록
+public class MemberImportServiceTest {
+
+    @Autowired MemberImportService memberImportService;
+    @Autowired MemberService memberService;
+    @Autowired MemberRepository memberRepository;
+    @Autowired ObjectMapper objectMapper;
+
+    @Test
+    public void CSV_가져오기() throws Exception {
+        //given
+        Member existing = new Member();
+        existing.setName("import-existing");
+        memberService.join(existing);
+
+        String csv = "name,city,street,zipcode\n"
+                + "import-a,서울,\"강가, 1\",12345\n"
+                + ",서울,1,1\n"
+                + "import-existing,부산,2,2\n"
+                + "import-b,,,\n"
+                + "import-a,진주,3,3\n"
+                + "\"import-c,서울\n";
+
+        //when
+        MemberImportResult result = memberImportService.importMembers(MemberImportReader.csv(stream(csv)));
+
+        //then
+        assertEquals(6, result.getTotal());
+        assertEquals(2, result.getImported());
+        assertEquals(4, result.getFailed());
+        assertNull(result.getAbortedBy());
+        assertEquals("Name is empty", reasonOf(result, 2));
+        assertEquals("Already exist member.", reasonOf(result, 3));
+        assertEquals("Duplicate name in import", reasonOf(result, 5));
+        assertEquals("Unterminated quoted value", reasonOf(result, 6));
+
+        Member imported = memberRepository.findByName("import-a").get(0);
+        assertEquals("강가, 1", imported.getAddress().getStreet());
+        assertNull(memberRepository.findByName("import-b").get(0).getAddress());
+    }
+
+    @Test
+    public void JSON_가져오기_중간에_깨지면_그때까지_저장() throws Exception {
+        //given
+        String json = "[{\"name\": \"import-json-1\", \"city\": \"서울\"}, {\"name\": \"import-json-2\"}, {\"name\": ";
+
+        //when
+        MemberImportResult result = memberImportService.importMembers(MemberImportReader.json(stream(json), objectMapper));
+
+        //then
+        assertEquals(2, result.getImported());
+        assertNotNull(result.getAbortedBy());
+        assertEquals(1, memberRepository.findByName("import-json-2").size());
+    }
+
+    @Test(expected = MalformedImportException.class)
+    public void 배열이_아닌_JSON은_거부한다() throws Exception {
+        MemberImportReader.json(stream("{\"name\": \"import-object\"}"), objectMapper);
+    }
+
+    @Test(expected = MalformedImportException.class)
+    public void JSON이_아닌_본문은_거부한다() throws Exception {
+        MemberImportReader.json(stream("name,city\nimport-csv,서울\n"), objectMapper);
+    }
+
+    @Test(expected = MalformedImportException.class)
+    public void 헤더가_없는_CSV는_거부한다() throws Exception {
+        MemberImportReader.csv(stream(""));
+    }
+
+    private String reasonOf(MemberImportResult result, long row) {
+        List<MemberImportResult.RowFailure> failures = result.getFailures();
+        return failures.stream().filter(f -> f.getRow() == row).findFirst()
+                .map(MemberImportResult.RowFailure::getReason)
+                .orElse(null);
+    }
+
+    private InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,155 @@
+package jpabook.jpashop.service.query;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderChangedEvent;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 주문 목록 캐시는 주문 생성/취소가 커밋된 후에만 무효화되어야 한다
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderListCacheTest {
+
+    @Autowired OrderListCache orderListCache;
+    @Autowired OrderService orderService;
+    @Autowired MemberService memberService;
+    @Autowired ItemService itemService;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 커밋후_무효화() throws Exception {
+        //given
+        Long memberId = createMember("cache-commit");
+        Long itemId = createBook();
+        List<OrderSimpleQueryDto> before = orderListCache.simpleOrders();
+        assertSame("두 번째 조회는 캐시된 목록을 반환한다", before, orderListCache.simpleOrders());
+
+        //when
+        orderService.order(memberId, itemId, 1);
+
+        //then
+        assertEquals(before.size() + 1, orderListCache.simpleOrders().size());
+        assertEquals(before.size() + 1, orderListCache.ordersWithItems().size());
+    }
+
+    @Test
+    public void 롤백시_유지() throws Exception {
+        //given
+        Long memberId = createMember("cache-rollback");
+        Long itemId = createBook();
+        List<OrderSimpleQueryDto> before = orderListCache.simpleOrders();
+
+        //when
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            orderService.order(memberId, itemId, 1);
+            status.setRollbackOnly();
+        });
+
+        //then
+        assertSame(before, orderListCache.simpleOrders());
+    }
+
+    @Test
+    public void 조회중에_커밋된_변경은_이전_목록을_남기지_않는다() throws Exception {
+        //given : 첫 조회가 커밋 이전 스냅샷을 읽는 동안 주문 변경이 커밋된다
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        List<OrderSimpleQueryDto> stale = Collections.emptyList();
+        List<OrderSimpleQueryDto> fresh = Collections.nCopies(2, null);
+
+        OrderSimpleQueryRepository repository = new OrderSimpleQueryRepository(null) {
+            @Override
+            public List<OrderSimpleQueryDto> findOrderDtos() {
+                if (loads.getAndIncrement() > 0) {
+                    return fresh;
+                }
+                loading.countDown();
+                try {
+                    committed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return stale;
+            }
+        };
+        OrderListCache cache = new OrderListCache(repository, null, new NoTransactionManager(),
+                new OrderListCacheProperties(), new SimpleMeterRegistry(), Runnable::run);
+
+        //when
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<List<OrderSimpleQueryDto>> first = executor.submit(cache::simpleOrders);
+        loading.await();
+        cache.onOrderChanged(new OrderChangedEvent(1L));
+        committed.countDown();
+
+        //then
+        assertEquals("커밋 이전 스냅샷의 목록은 반환하지 않는다", 2, first.get(5, TimeUnit.SECONDS).size());
+        assertEquals(2, cache.simpleOrders().size());
+        assertEquals("다시 조회한 목록은 캐시된다", 2, loads.get());
+        executor.shutdown();
+    }
+
+    // 캐시 로더의 읽기 전용 트랜잭션을 흉내만 낸다
+    static class NoTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+
+    private Long createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+
+    private Long createBook() {
+        Book book = new Book();
+        book.setName("CACHE BOOK");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+}
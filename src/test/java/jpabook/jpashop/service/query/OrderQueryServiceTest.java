@@ -0,0 +1,109 @@
+package jpabook.jpashop.service.query;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.query.OrderFlatFolder;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * open-in-view 없이 서비스가 반환한 결과만으로 응답을 만들 수 있는지,
+ * 읽기 전용 트랜잭션의 엔티티가 변경감지 대상이 아닌지 확인한다
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderQueryServiceTest {
+
+    @Autowired OrderQueryService orderQueryService;
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 트랜잭션밖에서_화면용_연관관계사용() throws Exception {
+        //when
+        List<Order> orders = orderQueryService.findOrdersForView(new OrderSearch());
+
+        //then
+        assertFalse(orders.isEmpty());
+        for (Order order : orders) {
+            assertTrue(Hibernate.isInitialized(order.getMember()));
+            assertTrue(Hibernate.isInitialized(order.getOrderItems().get(0).getItem()));
+        }
+    }
+
+    @Test
+    public void 트랜잭션밖에서_DTO사용() throws Exception {
+        List<OrderDto> orders = orderQueryService.findOrderDtos(0, 10);
+
+        assertFalse(orders.isEmpty());
+        assertFalse(orders.get(0).getOrderItems().isEmpty());
+    }
+
+    @Test
+    public void v6_스트리밍_응답은_접은_목록과_같다() throws Exception {
+        //given
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        List<OrderQueryDto> folded = readOnlyTx.execute(status ->
+                OrderFlatFolder.fold(orderQueryRepository.findAllByDto_flatOrdered()));
+
+        //when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = orderQueryService.writeOrderQueryDtosFlat(out);
+
+        //then
+        assertEquals(folded.size(), written);
+        assertEquals(objectMapper.valueToTree(folded), objectMapper.readTree(out.toByteArray()));
+    }
+
+    @Test
+    public void 읽기전용_트랜잭션은_스냅샷과_flush가_없다() throws Exception {
+        //given
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+
+        //when
+        Order changed = readOnlyTx.execute(status -> {
+            Session session = em.unwrap(Session.class);
+            assertTrue(session.isDefaultReadOnly());
+            assertEquals(FlushMode.MANUAL, session.getHibernateFlushMode());
+
+            Order order = orderRepository.findAll(new OrderSearch()).get(0);
+            assertTrue("읽기 전용 엔티티는 변경감지용 스냅샷을 만들지 않는다", session.isReadOnly(order));
+
+            order.setStatus(order.getStatus() == OrderStatus.ORDER ? OrderStatus.CANCEL : OrderStatus.ORDER);
+            return order;
+        });
+
+        //then
+        OrderStatus stored = new TransactionTemplate(transactionManager).execute(status ->
+                em.createQuery("select o.status from Order o where o.id = :id", OrderStatus.class)
+                        .setParameter("id", changed.getId())
+                        .getSingleResult());
+        assertTrue("읽기 전용 트랜잭션의 변경은 DB 에 반영되지 않는다", stored != changed.getStatus());
+    }
+}
@@ -0,0 +1,84 @@
+package jpabook.jpashop.service.stock;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.ItemRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 재고보다 많은 구매자가 동시에 사도 조건부 update 는 초과 판매하지 않는다
+ * 처리량 비교는 src/jmh 의 StockConcurrencyBenchmark
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class AtomicStockKeeperTest {
+
+    private static final int BUYERS = 8;
+    private static final int INITIAL_STOCK = 5;
+
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired ItemRepository itemRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void neverOversells() throws Exception {
+        //given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        AtomicStockKeeper stockKeeper = new AtomicStockKeeper(itemRepository);
+        Long itemId = tx.execute(status -> {
+            Book book = new Book();
+            book.setName("HOT atomic");
+            book.setStockQuantity(INITIAL_STOCK);
+            em.persist(book);
+            return book.getId();
+        });
+
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        //when
+        for (int i = 0; i < BUYERS; i++) {
+            executor.submit(() -> {
+                start.await();
+                try {
+                    tx.executeWithoutResult(status -> stockKeeper.removeStock(em.getReference(Item.class, itemId), 1));
+                    success.incrementAndGet();
+                } catch (NotEnoughStockException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        //then
+        int finalStock = jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, itemId);
+        assertEquals("Every successful purchase must decrease the stock", INITIAL_STOCK - finalStock, success.get());
+        assertEquals(INITIAL_STOCK, success.get());
+        assertEquals(0, finalStock);
+        assertEquals(BUYERS - INITIAL_STOCK, rejected.get());
+    }
+}
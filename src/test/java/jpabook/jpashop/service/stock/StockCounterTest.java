@@ -0,0 +1,59 @@
+package jpabook.jpashop.service.stock;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StockCounterTest {
+
+    @Test
+    public void reserveNeverOversells() throws Exception {
+        //given
+        StockCounter counter = new StockCounter(50);
+        int buyers = 64;
+        ExecutorService executor = Executors.newFixedThreadPool(buyers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger success = new AtomicInteger();
+
+        //when
+        for (int i = 0; i < buyers; i++) {
+            executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < 10; j++) {
+                    if (counter.tryReserve(1)) {
+                        success.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        //then
+        assertEquals("Only available stock can be reserved", 50, success.get());
+        assertEquals(0, counter.getAvailable());
+    }
+
+    @Test
+    public void releaseAndDrainDelta() throws Exception {
+        StockCounter counter = new StockCounter(10);
+
+        assertTrue(counter.tryReserve(3));
+        assertFalse(counter.tryReserve(8));
+        counter.recordDelta(-3);
+        counter.release(2);
+        counter.recordDelta(2);
+
+        assertEquals(9, counter.getAvailable());
+        assertEquals(-1, counter.drainDelta());
+        assertEquals("Drained delta must be reset", 0, counter.drainDelta());
+    }
+}
@@ -0,0 +1,137 @@
+package jpabook.jpashop.service.stock;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.StockKeeper;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * reservation 모드의 예약/확정/롤백과 write-behind 반영(flush), evict 후 카운터 재생성을 확인한다.
+ * 스케줄된 flush 가 끼어들지 않도록 반영 주기를 길게 둔다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.stock.mode=reservation",
+        "jpashop.stock.flush-interval-ms=3600000"})
+public class StockReservationEngineTest {
+
+    @Autowired StockReservationEngine engine;
+    @Autowired StockKeeper stockKeeper;
+    @Autowired EntityManager em;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    TransactionTemplate tx;
+    Book book;
+
+    @Before
+    public void setUp() {
+        assertTrue(stockKeeper instanceof ReservationStockKeeper);
+        tx = new TransactionTemplate(transactionManager);
+        book = tx.execute(status -> {
+            Book b = new Book();
+            b.setName("reservation");
+            b.setStockQuantity(10);
+            em.persist(b);
+            return b;
+        });
+    }
+
+    @Test
+    public void 커밋된_예약은_flush_후_DB에_반영된다() throws Exception {
+        tx.executeWithoutResult(status -> stockKeeper.removeStock(book, 3));
+
+        assertEquals(7, engine.available(book.getId()));
+        assertEquals(10, dbStock());
+
+        engine.flush();
+        assertEquals(7, dbStock());
+    }
+
+    @Test
+    public void 롤백된_예약은_되돌린다() throws Exception {
+        tx.executeWithoutResult(status -> {
+            stockKeeper.removeStock(book, 4);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(10, engine.available(book.getId()));
+        engine.flush();
+        assertEquals(10, dbStock());
+    }
+
+    @Test(expected = NotEnoughStockException.class)
+    public void 재고보다_많이_예약할_수_없다() throws Exception {
+        engine.reserve(book, 11);
+    }
+
+    @Test
+    public void 카운터는_엔티티가_아니라_DB_재고로_시작한다() throws Exception {
+        book.setStockQuantity(999);     // 2차 캐시 등에서 온 이전 값
+
+        engine.reserve(book, 1);
+
+        assertEquals(9, engine.available(book.getId()));
+    }
+
+    @Test
+    public void evict는_반영하지_않은_판매를_버리지_않는다() throws Exception {
+        tx.executeWithoutResult(status -> stockKeeper.removeStock(book, 3));
+
+        engine.evict(book.getId());
+        assertEquals(-1, engine.available(book.getId()));
+
+        // 다시 만든 카운터도 반영 대기 중인 판매를 포함한다
+        engine.reserve(book, 1);
+        assertEquals(6, engine.available(book.getId()));
+
+        engine.flush();
+        assertEquals(7, dbStock());
+    }
+
+    @Test
+    public void evict_이후에_커밋된_예약도_반영된다() throws Exception {
+        StockCounter before = engine.reserve(book, 2);
+        engine.evict(book.getId());
+
+        StockCounter after = engine.reserve(book, 1);     // DB 재고 10 으로 다시 시작
+        assertEquals(9, engine.available(book.getId()));
+
+        engine.commitReservation(book.getId(), before, 2);
+        assertEquals(7, engine.available(book.getId()));
+        engine.cancelReservation(after, 1);
+        assertEquals(8, engine.available(book.getId()));
+
+        engine.flush();
+        assertEquals(8, dbStock());
+    }
+
+    @Test
+    public void 카운터가_없는_상품의_재고_증가는_다음_flush에_반영된다() throws Exception {
+        tx.executeWithoutResult(status -> stockKeeper.addStock(book, 5));
+        assertEquals(-1, engine.available(book.getId()));
+
+        engine.flush();
+        assertEquals(15, dbStock());
+        engine.reserve(book, 1);
+        assertEquals(14, engine.available(book.getId()));
+    }
+
+    private int dbStock() {
+        return jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, book.getId());
+    }
+}